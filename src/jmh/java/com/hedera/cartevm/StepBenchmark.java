@@ -0,0 +1,133 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.tuweni.bytes.Bytes;
+import org.hyperledger.besu.evm.frame.MessageFrame;
+import org.hyperledger.besu.evm.tracing.OperationTracer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Times one run of a generated step program on the embedded Besu EVM. Only the message frame loop
+ * is measured, compiling the program and building the world and frame happen outside of it.
+ *
+ * <p>{@code step} is a step name, or several joined with {@code __} as in the local runner output,
+ * and the combination is repeated {@code repeat} times in each loop body. The {@code gas} counter
+ * is normalized like the primary result, so with the default mode it reads as nanoseconds per unit
+ * of gas.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StepBenchmark {
+
+  @Param({
+    "nothing",
+    "add_small",
+    "mul_small",
+    "exp_small",
+    "keccak",
+    "balance",
+    "sload",
+    "sstore",
+    "mload",
+    "call",
+    "log4",
+    "push32",
+    "swap16"
+  })
+  public String step;
+
+  @Param({"1", "2"})
+  public int repeat;
+
+  @Param({"10000000"})
+  public long gasLimit;
+
+  @Param({"5120"})
+  public int sizeLimit;
+
+  @Param({"london"})
+  public String fork;
+
+  private LocalRunner runner;
+  private Bytes codeBytes;
+  private ExecutionContext context;
+  private MessageFrame initialMessageFrame;
+
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class GasCounter {
+    public long gas;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      gas = 0;
+    }
+  }
+
+  static List<Step> combination(String names, int repeat) {
+    List<Step> combination = new ArrayList<>();
+    for (int i = 0; i < repeat; i++) {
+      for (String name : names.split("__")) {
+        combination.add(
+            Step.steps.stream()
+                .filter(s -> s.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No step named " + name)));
+      }
+    }
+    return combination;
+  }
+
+  @Setup(Level.Trial)
+  public void compile() {
+    runner = new LocalRunner(combination(step, repeat), gasLimit, sizeLimit);
+    codeBytes = Bytes.fromHexString(runner.bytecode());
+    context = new ExecutionContext(Fork.valueOf(fork));
+  }
+
+  @Setup(Level.Invocation)
+  public void createFrame() {
+    // a frame only runs once, and a run takes milliseconds so per invocation setup is safe
+    initialMessageFrame = runner.createInitialFrame(codeBytes);
+  }
+
+  @Benchmark
+  public long execute(GasCounter counter) {
+    context.process(initialMessageFrame, OperationTracer.NO_TRACING);
+    long gasUsed = runner.initialGas() - initialMessageFrame.getRemainingGas();
+    counter.gas += gasUsed;
+    return gasUsed;
+  }
+}
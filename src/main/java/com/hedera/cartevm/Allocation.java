@@ -0,0 +1,64 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Memory use over the measured runs of one combination.
+ *
+ * @param allocatedBytes bytes allocated by the measuring thread per measured run, on average
+ * @param processGcCount collections anywhere in the JVM during the measured runs and their frame
+ *     setup, including those caused by other worker threads
+ * @param processGcMillis time spent in those collections
+ */
+public record Allocation(long allocatedBytes, long processGcCount, long processGcMillis) {
+
+  private static final com.sun.management.ThreadMXBean threads =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  public double bytesPerGas(long gasUsed) {
+    return gasUsed == 0 ? 0 : (double) allocatedBytes / gasUsed;
+  }
+
+  static boolean supported() {
+    return threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled();
+  }
+
+  static long threadAllocatedBytes() {
+    return threads.getCurrentThreadAllocatedBytes();
+  }
+
+  static long totalGcCount() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream()
+        .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+        .filter(count -> count > 0)
+        .sum();
+  }
+
+  static long totalGcMillis() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream()
+        .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+        .filter(millis -> millis > 0)
+        .sum();
+  }
+}
@@ -0,0 +1,244 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Passes results on to another sink while keeping those of the last run, so they can be compared
+ * against the results of an earlier version once the sweep is done.
+ *
+ * <p>Combinations are matched by fork and name, and compared on nanoseconds per gas so a changed
+ * gas schedule does not read as a speed change. A change is significant when Welch's t-test
+ * rejects equal means at 95%, which needs more than one sample on both sides. Opcodes are compared
+ * the same way, taking the nanoseconds per gas of the opcode in each traced combination as the
+ * samples.
+ */
+public class BaselineComparison implements ResultSink {
+
+  record Change(String name, double baseline, double current, boolean significant) {
+
+    double ratio() {
+      return current / baseline;
+    }
+  }
+
+  private final ResultSink delegate;
+  private final Map<String, RunResult> baseline = new HashMap<>();
+  private final List<RunResult> current = new ArrayList<>();
+
+  public BaselineComparison(ResultSink delegate, Collection<RunResult> baselineResults) {
+    this.delegate = delegate;
+    // a baseline with repeats keeps only the last run, which is the one reported by default
+    for (RunResult result : baselineResults) {
+      RunResult existing = baseline.get(key(result));
+      if (existing == null || result.run() < existing.run()) {
+        baseline.put(key(result), result);
+      }
+    }
+  }
+
+  private static String key(RunResult result) {
+    return result.fork() + "/" + result.name();
+  }
+
+  @Override
+  public void accept(RunResult result) {
+    delegate.accept(result);
+    if (result.run() == 1) {
+      synchronized (current) {
+        current.add(result);
+      }
+    }
+  }
+
+  @Override
+  public void flush() {
+    delegate.flush();
+  }
+
+  @Override
+  public void sync() {
+    delegate.sync();
+  }
+
+  @Override
+  public void close() {
+    delegate.close();
+  }
+
+  List<Change> combinationChanges() {
+    List<Change> changes = new ArrayList<>();
+    synchronized (current) {
+      for (RunResult result : current) {
+        RunResult previous = baseline.get(key(result));
+        if (previous == null || previous.gasUsed() == 0 || result.gasUsed() == 0) {
+          continue;
+        }
+        Statistics before = previous.time();
+        Statistics after = result.time();
+        double beforeScale = 1.0 / previous.gasUsed();
+        double afterScale = 1.0 / result.gasUsed();
+        changes.add(
+            new Change(
+                key(result),
+                before.mean() * beforeScale,
+                after.mean() * afterScale,
+                significant(
+                    before.count(),
+                    before.mean() * beforeScale,
+                    before.stddev() * beforeScale,
+                    after.count(),
+                    after.mean() * afterScale,
+                    after.stddev() * afterScale)));
+      }
+    }
+    return changes;
+  }
+
+  List<Change> opcodeChanges() {
+    Map<String, List<Double>> before = opcodeSamples(baseline.values());
+    Map<String, List<Double>> after;
+    synchronized (current) {
+      after = opcodeSamples(current);
+    }
+    List<Change> changes = new ArrayList<>();
+    before.forEach(
+        (name, beforeSamples) -> {
+          List<Double> afterSamples = after.get(name);
+          if (afterSamples == null) {
+            return;
+          }
+          Statistics beforeStats = Statistics.of(toArray(beforeSamples));
+          Statistics afterStats = Statistics.of(toArray(afterSamples));
+          changes.add(
+              new Change(
+                  name,
+                  beforeStats.mean(),
+                  afterStats.mean(),
+                  significant(
+                      beforeStats.count(),
+                      beforeStats.mean(),
+                      beforeStats.stddev(),
+                      afterStats.count(),
+                      afterStats.mean(),
+                      afterStats.stddev())));
+        });
+    return changes;
+  }
+
+  private static Map<String, List<Double>> opcodeSamples(Collection<RunResult> results) {
+    Map<String, List<Double>> samples = new TreeMap<>();
+    for (RunResult result : results) {
+      if (result.opcodes() == null) {
+        continue;
+      }
+      for (OpcodeBreakdown.Entry entry : result.opcodes().entries()) {
+        if (entry.gas() > 0) {
+          samples
+              .computeIfAbsent(result.fork() + "/" + entry.name(), k -> new ArrayList<>())
+              .add(entry.nanos() / entry.gas());
+        }
+      }
+    }
+    return samples;
+  }
+
+  private static double[] toArray(List<Double> samples) {
+    return samples.stream().mapToDouble(Double::doubleValue).toArray();
+  }
+
+  /** Welch's t-test for unequal variances, two sided at 95%. */
+  static boolean significant(
+      int countA, double meanA, double stddevA, int countB, double meanB, double stddevB) {
+    if (countA < 2 || countB < 2) {
+      return false;
+    }
+    if (stddevA == 0 && stddevB == 0) {
+      return meanA != meanB;
+    }
+    double t = welchT(countA, meanA, stddevA, countB, meanB, stddevB);
+    double degreesOfFreedom = welchDegreesOfFreedom(countA, stddevA, countB, stddevB);
+    return Math.abs(t) > Statistics.tCritical(Math.max(1, (int) degreesOfFreedom));
+  }
+
+  static double welchT(
+      int countA, double meanA, double stddevA, int countB, double meanB, double stddevB) {
+    return (meanB - meanA) / Math.sqrt(stddevA * stddevA / countA + stddevB * stddevB / countB);
+  }
+
+  /** The Welch–Satterthwaite approximation of the degrees of freedom. */
+  static double welchDegreesOfFreedom(int countA, double stddevA, int countB, double stddevB) {
+    double varianceA = stddevA * stddevA / countA;
+    double varianceB = stddevB * stddevB / countB;
+    return (varianceA + varianceB)
+        * (varianceA + varianceB)
+        / (varianceA * varianceA / (countA - 1) + varianceB * varianceB / (countB - 1));
+  }
+
+  /**
+   * Print the significant changes, returning how many are slowdowns of more than the threshold,
+   * as a fraction of the baseline time.
+   */
+  public int report(PrintStream out, double threshold) {
+    List<Change> combinations = combinationChanges();
+    List<Change> opcodes = opcodeChanges();
+    int regressions = report(out, "combination", combinations, threshold);
+    regressions += report(out, "opcode", opcodes, threshold);
+    int unmatched;
+    synchronized (current) {
+      unmatched = current.size() - combinations.size();
+    }
+    out.printf(
+        "Compared %,d combinations and %,d opcodes against the baseline, %,d unmatched, %,d"
+            + " regressions over %.1f%%%n",
+        combinations.size(), opcodes.size(), unmatched, regressions, threshold * 100);
+    return regressions;
+  }
+
+  private static int report(PrintStream out, String kind, List<Change> changes, double threshold) {
+    int regressions = 0;
+    List<Change> significant =
+        new ArrayList<>(changes.stream().filter(Change::significant).toList());
+    significant.sort((a, b) -> Double.compare(b.ratio(), a.ratio()));
+    for (Change change : significant) {
+      boolean regression = change.ratio() - 1 > threshold;
+      if (regression) {
+        regressions++;
+      }
+      out.printf(
+          "%s\t%s\t%s\t%.4f ns/gas\t%.4f ns/gas\t%+.1f%%%n",
+          regression ? "REGRESSION" : change.ratio() > 1 ? "slower" : "faster",
+          kind,
+          change.name(),
+          change.baseline(),
+          change.current(),
+          (change.ratio() - 1) * 100);
+    }
+    return regressions;
+  }
+}
@@ -0,0 +1,184 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Compiles many generated Yul programs with a single {@code solc --standard-json} process and
+ * primes the bytecode caches with the results, so solc is only started once per batch instead of
+ * once per combination. Sources are named after the combination, which is how the outputs are
+ * mapped back.
+ */
+public class BatchCompiler {
+
+  static final List<String> SOLC_STANDARD_JSON_COMMAND = List.of("solc", "--standard-json");
+
+  private BatchCompiler() {}
+
+  /**
+   * Compile every generator not already cached. Anything solc did not produce bytecode for is left
+   * uncached and will be compiled on its own, which also reports its errors.
+   */
+  public static void prime(List<? extends CodeGenerator> generators) throws IOException {
+    Map<String, String> yulByName = new LinkedHashMap<>();
+    for (CodeGenerator generator : generators) {
+      String yul = generator.generate(CodeGenerator.yulTemplate);
+      if (CodeGenerator.bytecodeCache.getIfPresent(yul) != null) {
+        continue;
+      }
+      if (CodeGenerator.persistentCache != null) {
+        Optional<String> cached =
+            CodeGenerator.persistentCache.get(SOLC_STANDARD_JSON_COMMAND, yul);
+        if (cached.isPresent()) {
+          CodeGenerator.bytecodeCache.put(yul, cached.get());
+          continue;
+        }
+      }
+      yulByName.put(generator.getName(), yul);
+    }
+    if (yulByName.isEmpty()) {
+      return;
+    }
+
+    Map<String, String> bytecodeByName = compile(yulByName);
+    bytecodeByName.forEach(
+        (name, bytecode) -> {
+          String yul = yulByName.get(name);
+          CodeGenerator.bytecodeCache.put(yul, bytecode);
+          if (CodeGenerator.persistentCache != null) {
+            CodeGenerator.persistentCache.put(SOLC_STANDARD_JSON_COMMAND, yul, bytecode);
+          }
+        });
+  }
+
+  static Map<String, String> compile(Map<String, String> yulByName) throws IOException {
+    JsonObject sources = new JsonObject();
+    yulByName.forEach(
+        (name, yul) -> {
+          JsonObject source = new JsonObject();
+          source.addProperty("content", yul);
+          sources.add(sourceName(name), source);
+        });
+
+    JsonArray outputs = new JsonArray();
+    outputs.add("evm.bytecode.object");
+    JsonObject contractOutputs = new JsonObject();
+    contractOutputs.add("*", outputs);
+    JsonObject outputSelection = new JsonObject();
+    outputSelection.add("*", contractOutputs);
+    // match the --assemble invocation, paris and no optimizer
+    JsonObject optimizer = new JsonObject();
+    optimizer.addProperty("enabled", false);
+    JsonObject settings = new JsonObject();
+    settings.addProperty("evmVersion", "paris");
+    settings.add("optimizer", optimizer);
+    settings.add("outputSelection", outputSelection);
+
+    JsonObject input = new JsonObject();
+    input.addProperty("language", "Yul");
+    input.add("sources", sources);
+    input.add("settings", settings);
+
+    String output;
+    try {
+      Process p = new ProcessBuilder().command(SOLC_STANDARD_JSON_COMMAND).start();
+      try {
+        try (OutputStream os = p.getOutputStream()) {
+          os.write(input.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        output = new String(p.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+      } finally {
+        p.destroy();
+      }
+    } catch (IOException ioe) {
+      // no solc, the per combination fallback deals with it
+      return Map.of();
+    }
+    return parseOutput(output, yulByName.keySet());
+  }
+
+  /** The bytecode solc produced for each name, failing if the output is not what solc writes. */
+  static Map<String, String> parseOutput(String output, Collection<String> names)
+      throws IOException {
+    try {
+      return parseResult(JsonParser.parseString(output).getAsJsonObject(), names);
+    } catch (JsonParseException | IllegalStateException | NullPointerException e) {
+      throw new IOException(
+          "Malformed solc output for the batch of %d programs starting with %s"
+              .formatted(names.size(), names.stream().findFirst().orElse("nothing")),
+          e);
+    }
+  }
+
+  private static Map<String, String> parseResult(JsonObject result, Collection<String> names) {
+    if (result.has("errors")) {
+      for (JsonElement error : result.getAsJsonArray("errors")) {
+        JsonObject errorObject = error.getAsJsonObject();
+        if ("error".equals(errorObject.get("severity").getAsString())) {
+          System.err.println(errorObject.get("formattedMessage").getAsString());
+        }
+      }
+    }
+
+    Map<String, String> bytecodeByName = new LinkedHashMap<>();
+    JsonObject contracts =
+        result.has("contracts") ? result.getAsJsonObject("contracts") : new JsonObject();
+    for (String name : names) {
+      if (!contracts.has(sourceName(name))) {
+        continue;
+      }
+      // a bare Yul block compiles to a single object, whatever solc chooses to call it
+      for (Map.Entry<String, JsonElement> object :
+          contracts.getAsJsonObject(sourceName(name)).entrySet()) {
+        String bytecode =
+            object
+                .getValue()
+                .getAsJsonObject()
+                .getAsJsonObject("evm")
+                .getAsJsonObject("bytecode")
+                .get("object")
+                .getAsString();
+        if (!bytecode.isEmpty()) {
+          bytecodeByName.put(name, bytecode);
+        }
+        break;
+      }
+    }
+    return bytecodeByName;
+  }
+
+  static String sourceName(String name) {
+    return name + ".yul";
+  }
+}
@@ -0,0 +1,110 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Ticker;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Looks for the slowest sequences of steps without enumerating them all. Starting from the empty
+ * sequence, every sequence in the beam is extended by every candidate step and measured, and the
+ * {@code width} extensions with the lowest gas per second become the next beam, until the sequences
+ * reach {@code depth} steps or the time budget runs out.
+ *
+ * <p>A level costs {@code width * candidates} measurements, so depth four or five is within reach
+ * where full enumeration is not. Sequences that do not complete are never kept.
+ */
+public class BeamSearch {
+
+  record Scored(List<Step> steps, double gasPerSecond) {}
+
+  /** Measures a sequence, returning its gas per second, or NaN when it does not complete. */
+  public interface Scorer {
+    double score(List<Step> sequence, long index, boolean verbose);
+  }
+
+  private final List<Step> candidates;
+  private final int depth;
+  private final int width;
+  private final Duration budget;
+  private final Scorer scorer;
+  private final Ticker ticker;
+  private long nextIndex;
+
+  public BeamSearch(List<Step> candidates, int depth, int width, Duration budget, Scorer scorer) {
+    this(candidates, depth, width, budget, scorer, Ticker.systemTicker());
+  }
+
+  BeamSearch(
+      List<Step> candidates, int depth, int width, Duration budget, Scorer scorer, Ticker ticker) {
+    this.candidates = candidates;
+    this.depth = depth;
+    this.width = width;
+    this.budget = budget;
+    this.scorer = scorer;
+    this.ticker = ticker;
+  }
+
+  /** The final beam, slowest first. */
+  public List<Scored> search(boolean verbose) {
+    Stopwatch elapsed = Stopwatch.createStarted(ticker);
+    List<Scored> beam = List.of(new Scored(List.of(), Double.NaN));
+    for (int level = 1; level <= depth; level++) {
+      List<Scored> next = new ArrayList<>();
+      boolean outOfTime = false;
+      extend:
+      for (Scored parent : beam) {
+        for (Step step : candidates) {
+          if (elapsed.elapsed().compareTo(budget) >= 0) {
+            outOfTime = true;
+            break extend;
+          }
+          List<Step> sequence = new ArrayList<>(parent.steps());
+          sequence.add(step);
+          double gasPerSecond = scorer.score(List.copyOf(sequence), nextIndex++, verbose);
+          if (!Double.isNaN(gasPerSecond)) {
+            next.add(new Scored(List.copyOf(sequence), gasPerSecond));
+          }
+        }
+      }
+      if (next.isEmpty()) {
+        break;
+      }
+      next.sort(Comparator.comparingDouble(Scored::gasPerSecond));
+      beam = List.copyOf(next.subList(0, Math.min(width, next.size())));
+      System.err.printf(
+          "Beam level %d, %,d sequences measured in %s, slowest %s at %,.0f gas/second%n",
+          level,
+          nextIndex,
+          elapsed,
+          CartEVM.name(beam.get(0).steps()),
+          beam.get(0).gasPerSecond());
+      if (outOfTime) {
+        break;
+      }
+    }
+    return beam;
+  }
+}
@@ -25,9 +25,8 @@ public class ByteCodeOutput extends CodeGenerator {
 
   public void createBytecode(File outDir, String fileName) throws IOException {
     Path outputFile = outDir.toPath().resolve(fileName);
-    System.out.println(outputFile);
-    String yulCode = generate(yulTemplate);
-    String bytecode = compileYul(yulCode);
+    System.err.println(outputFile);
+    String bytecode = bytecode();
     if (bytecode.length() > 0xffff) {
       throw new RuntimeException(
           "Resulting code of " + getName() + " is too big: " + bytecode.length() + " bytes");
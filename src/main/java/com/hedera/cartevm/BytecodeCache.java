@@ -0,0 +1,189 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.google.common.base.Suppliers;
+import com.google.common.hash.Hashing;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Content addressed on-disk store of compiled bytecode. Entries are keyed by the SHA-256 of the
+ * solc version, the command that compiled them and the Yul source, so a new solc release never
+ * serves stale code and {@code --assemble} and {@code --standard-json} output never mix. When the
+ * directory grows past the size limit the least recently used entries are removed.
+ */
+public class BytecodeCache {
+
+  private final Path directory;
+  private final long maxBytes;
+  private final Supplier<String> solcVersion;
+  private final AtomicLong currentBytes = new AtomicLong();
+
+  public BytecodeCache(Path directory, long maxBytes) {
+    this(directory, maxBytes, BytecodeCache::solcVersion);
+  }
+
+  /** Asks for the solc version on first use only, so an unused cache never forks solc. */
+  BytecodeCache(Path directory, long maxBytes, Supplier<String> solcVersion) {
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+    this.solcVersion = Suppliers.memoize(solcVersion::get);
+    try {
+      Files.createDirectories(directory);
+      currentBytes.set(entries().stream().mapToLong(BytecodeCache::size).sum());
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
+  String key(List<String> compilerCommand, String yulSource) {
+    return Hashing.sha256()
+        .newHasher()
+        .putString(solcVersion.get(), StandardCharsets.UTF_8)
+        .putByte((byte) 0)
+        .putString(String.join(" ", compilerCommand), StandardCharsets.UTF_8)
+        .putByte((byte) 0)
+        .putString(yulSource, StandardCharsets.UTF_8)
+        .hash()
+        .toString();
+  }
+
+  Path entryPath(String key) {
+    return directory.resolve(key.substring(0, 2)).resolve(key + ".hex");
+  }
+
+  public Optional<String> get(List<String> compilerCommand, String yulSource) {
+    Path entry = entryPath(key(compilerCommand, yulSource));
+    try {
+      String bytecode = Files.readString(entry);
+      // touch the entry so eviction is least recently used rather than oldest
+      Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+      return Optional.of(bytecode);
+    } catch (IOException ioe) {
+      return Optional.empty();
+    }
+  }
+
+  public void put(List<String> compilerCommand, String yulSource, String bytecode) {
+    Path entry = entryPath(key(compilerCommand, yulSource));
+    long previous;
+    try {
+      Files.createDirectories(entry.getParent());
+      // zero for a new entry, what a replaced one counted for otherwise
+      previous = Files.exists(entry) ? Files.size(entry) : 0;
+      // write and rename so concurrent workers and processes never see a partial entry
+      Path temp = Files.createTempFile(entry.getParent(), "entry", ".tmp");
+      Files.writeString(temp, bytecode);
+      Files.move(
+          temp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException ioe) {
+      System.err.println("Could not cache bytecode in " + entry + ": " + ioe.getMessage());
+      return;
+    }
+    if (currentBytes.addAndGet(bytecode.length() - previous) > maxBytes) {
+      evict();
+    }
+  }
+
+  long currentBytes() {
+    return currentBytes.get();
+  }
+
+  synchronized void evict() {
+    if (currentBytes.get() <= maxBytes) {
+      return;
+    }
+    try {
+      List<Path> entries = new ArrayList<>(entries());
+      entries.sort(Comparator.comparing(BytecodeCache::lastModified));
+      long total = entries.stream().mapToLong(BytecodeCache::size).sum();
+      // trim to 90% so we are not evicting on every put once full
+      long target = maxBytes / 10 * 9;
+      for (Path entry : entries) {
+        if (total <= target) {
+          break;
+        }
+        long size = size(entry);
+        Files.deleteIfExists(entry);
+        total -= size;
+      }
+      currentBytes.set(total);
+    } catch (IOException ioe) {
+      System.err.println("Could not evict from bytecode cache: " + ioe.getMessage());
+    }
+  }
+
+  private List<Path> entries() throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      return files.filter(p -> p.toString().endsWith(".hex")).toList();
+    }
+  }
+
+  private static long size(Path path) {
+    try {
+      return Files.size(path);
+    } catch (IOException ioe) {
+      return 0;
+    }
+  }
+
+  private static FileTime lastModified(Path path) {
+    try {
+      return Files.getLastModifiedTime(path);
+    } catch (IOException ioe) {
+      return FileTime.fromMillis(0);
+    }
+  }
+
+  static String solcVersion() {
+    try {
+      Process p = new ProcessBuilder().command("solc", "--version").start();
+      try (var br = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+        String version = "unknown";
+        for (String line; (line = br.readLine()) != null; ) {
+          if (line.startsWith("Version:")) {
+            version = line.substring("Version:".length()).trim();
+          }
+        }
+        return version;
+      } finally {
+        p.destroy();
+      }
+    } catch (IOException ioe) {
+      return "unknown";
+    }
+  }
+}
@@ -20,10 +20,25 @@ package com.hedera.cartevm;
  * ‍
  */
 
+import com.google.common.hash.Hashing;
+import com.google.common.math.LongMath;
 import java.io.File;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import picocli.CommandLine;
 
 @CommandLine.Command(
@@ -38,7 +53,7 @@ import picocli.CommandLine;
     optionListHeading = "%nOptions:%n",
     footerHeading = "%n",
     footer = "Hedera Hasgraph Services is licensed under the Apache License 2.0")
-public class CartEVM implements Runnable {
+public class CartEVM implements Callable<Integer> {
 
   @CommandLine.Option(
       names = {"--repeat"},
@@ -108,45 +123,443 @@ public class CartEVM implements Runnable {
       description = "RegExp of the steps to run")
   private String stepsRegExp = ".*";
 
+  @CommandLine.Option(
+      names = {"--warmup"},
+      paramLabel = "int",
+      description = "Unmeasured runs of each combination before measuring it")
+  private final Integer warmup = 0;
+
+  @CommandLine.Option(
+      names = {"--iterations"},
+      paramLabel = "int",
+      description = "Measured runs of each combination, more than one reports statistics")
+  private final Integer iterations = 1;
+
+  @CommandLine.Option(
+      names = {"--max-variation"},
+      paramLabel = "double",
+      description = "Coefficient of variation above which a combination is flagged as noisy")
+  private final Double maxVariation = 0.05;
+
+  @CommandLine.Option(
+      names = {"--trace-opcodes"},
+      description = "Trace an extra run of each combination and report time and gas per opcode")
+  private final Boolean traceOpcodes = false;
+
+  @CommandLine.Option(
+      names = {"--trace-sample"},
+      paramLabel = "int",
+      description = "With --trace-opcodes, time one in this many operations")
+  private final Integer traceSample = 16;
+
+  @CommandLine.Option(
+      names = {"--measure-allocation"},
+      description = "Record the bytes allocated and the garbage collections while measuring")
+  private final Boolean measureAllocation = false;
+
+  @CommandLine.Option(
+      names = {"--results"},
+      paramLabel = "<file>",
+      description = "Write the local results to this file instead of stdout")
+  private File resultsFile;
+
+  @CommandLine.Option(
+      names = {"--results-format"},
+      paramLabel = "csv|jsonl",
+      description = "Format of the --results file")
+  private final FileResultSink.Format resultsFormat = FileResultSink.Format.csv;
+
+  @CommandLine.Option(
+      names = {"--results-flush"},
+      paramLabel = "int",
+      description = "Number of results to buffer between flushes of the --results file")
+  private final Integer resultsFlush = 1000;
+
+  @CommandLine.Option(
+      names = {"--journal"},
+      paramLabel = "<file>",
+      description = "Record completed combinations here and skip them when restarted")
+  private File journalFile;
+
+  @CommandLine.Option(
+      names = {"--journal-sync"},
+      paramLabel = "int",
+      description = "Number of completed combinations between syncs of the --journal")
+  private final Integer journalSync = 100;
+
+  @CommandLine.Option(
+      names = {"--shard"},
+      paramLabel = "i/n",
+      description = "Only run the combinations of zero based shard i of n")
+  private String shard;
+
+  @CommandLine.Option(
+      names = {"--lease-dir"},
+      paramLabel = "<dir>",
+      description = "Shared directory to claim chunks of combinations from, instead of --shard")
+  private File leaseDir;
+
+  @CommandLine.Option(
+      names = {"--lease-size"},
+      paramLabel = "long",
+      description = "Number of consecutive combinations per --lease-dir chunk")
+  private final Long leaseSize = 1000L;
+
+  @CommandLine.Option(
+      names = {"--lease-owner"},
+      paramLabel = "<name>",
+      description = "Name of this host in --lease-dir leases, defaults to the host name")
+  private String leaseOwner;
+
+  @CommandLine.Option(
+      names = {"--merge"},
+      paramLabel = "<file>",
+      arity = "1..*",
+      description = "Merge these results files into --results instead of running a sweep")
+  private List<File> mergeFiles;
+
+  @CommandLine.Option(
+      names = {"--enumeration"},
+      paramLabel = "ordered|multiset",
+      description =
+          "Enumerate ordered tuples of steps, or multisets where step order does not matter")
+  private final Enumeration enumeration = Enumeration.ordered;
+
+  @CommandLine.Option(
+      names = {"--step-catalog"},
+      paramLabel = "<file>",
+      description = "JSON step catalog to merge into the built in steps, by name")
+  private List<File> stepCatalogs = List.of();
+
+  @CommandLine.Option(
+      names = {"--operand-sweep"},
+      description =
+          "Add steps sweeping the operand sizes of size dependent opcodes, and fit cost curves")
+  private final Boolean operandSweep = false;
+
+  @CommandLine.Option(
+      names = {"--memory-sizes"},
+      paramLabel = "int",
+      split = ",",
+      description = "Add large memory steps for each of these comma separated sizes in bytes")
+  private List<Integer> memorySizes = List.of();
+
+  @CommandLine.Option(
+      names = {"--cold-steps"},
+      description = "Add cold variants of the steps that touch accounts and storage")
+  private final Boolean coldSteps = false;
+
+  @CommandLine.Option(
+      names = {"--precompile-steps"},
+      description = "Add steps calling each precompiled contract, and fit their cost curves")
+  private final Boolean precompileSteps = false;
+
+  @CommandLine.Option(
+      names = {"--prewarm"},
+      description =
+          "Put the accounts and slots the steps touch in the access list, so they start warm")
+  private final Boolean prewarm = false;
+
+  @CommandLine.Option(
+      names = {"--step-tags"},
+      paramLabel = "<tag>",
+      split = ",",
+      description = "Comma separated tags, only steps with at least one of them are combined")
+  private List<String> stepTags = List.of();
+
+  @CommandLine.Option(
+      names = {"--state-dir"},
+      paramLabel = "<dir>",
+      description =
+          "Run against a large generated state kept in this directory, with the large-state steps")
+  private File stateDir;
+
+  @CommandLine.Option(
+      names = {"--state-accounts"},
+      paramLabel = "long",
+      description = "Number of generated accounts in the large state")
+  private final Long stateAccounts = 1_000_000L;
+
+  @CommandLine.Option(
+      names = {"--state-slots"},
+      paramLabel = "long",
+      description = "Number of generated storage slots of the receiver in the large state")
+  private final Long stateSlots = 1_000_000L;
+
+  @CommandLine.Option(
+      names = {"--state-seed"},
+      paramLabel = "long",
+      description = "Seed the large state is generated from")
+  private final Long stateSeed = 1L;
+
+  @CommandLine.Option(
+      names = {"--slow-steps"},
+      paramLabel = "regexp",
+      description = "Only run combinations with at least one step matching this RegExp")
+  private String slowStepsRegExp;
+
+  @CommandLine.Option(
+      names = {"--prune-above"},
+      paramLabel = "double",
+      description =
+          "Skip all extensions of a prefix that already runs above this gas/second, only with"
+              + " ordered enumeration")
+  private Double pruneAbove;
+
+  @CommandLine.Option(
+      names = {"--threads"},
+      paramLabel = "int",
+      description = "Number of worker threads to spread the combinations over")
+  private final Integer threads = 1;
+
+  @CommandLine.Option(
+      names = {"--solc"},
+      description = "Compile the Yul harness with solc instead of the built-in assembler")
+  private final Boolean solc = false;
+
+  @CommandLine.Option(
+      names = {"--solc-batch"},
+      paramLabel = "int",
+      description = "Number of Yul programs to compile per solc invocation with --solc")
+  private final Integer solcBatch = 200;
+
+  @CommandLine.Option(
+      names = {"--cache-dir"},
+      paramLabel = "<dir>",
+      description = "Directory to persist compiled bytecode in across runs")
+  private File cacheDir;
+
+  @CommandLine.Option(
+      names = {"--cache-size-limit"},
+      paramLabel = "long",
+      description = "Maximum size in megabytes of the bytecode cache directory")
+  private final Long cacheSizeLimit = 1024L;
+
+  @CommandLine.Option(
+      names = {"--beam-width"},
+      paramLabel = "int",
+      description =
+          "Search for the slowest --steps long sequences keeping this many per length, instead"
+              + " of running every combination")
+  private Integer beamWidth;
+
+  @CommandLine.Option(
+      names = {"--time-budget"},
+      paramLabel = "<duration>",
+      description = "How long --beam-width may search for, as an ISO-8601 duration such as PT4H")
+  private Duration timeBudget = Duration.ofHours(1);
+
+  @CommandLine.Option(
+      names = {"--top"},
+      paramLabel = "int",
+      description = "Rank the combinations by time per gas and report this many of the worst")
+  private Integer top;
+
+  @CommandLine.Option(
+      names = {"--forks"},
+      paramLabel = "london|paris|shanghai|cancun|prague",
+      split = ",",
+      description = "Comma separated forks to measure every combination under")
+  private List<Fork> forks = List.of(Fork.london);
+
+  @CommandLine.Option(
+      names = {"--calibrate"},
+      description = "Measure the gas each selected step really uses and report mismatches")
+  private final Boolean calibrate = false;
+
+  @CommandLine.Option(
+      names = {"--use-calibration"},
+      description = "Size loops from measured rather than declared gas, to fill the gas limit")
+  private final Boolean useCalibration = false;
+
+  @CommandLine.Option(
+      names = {"--baseline"},
+      paramLabel = "<file>",
+      description = "Earlier --results to compare this run against, by fork and combination")
+  private File baselineFile;
+
+  @CommandLine.Option(
+      names = {"--regression-threshold"},
+      paramLabel = "double",
+      description = "Exit non-zero when a significant slowdown against --baseline exceeds this")
+  private final Double regressionThreshold = 0.05;
+
+  private ExecutorService executor;
+  private Semaphore inFlight;
+  private int maxInFlight;
+  private final AtomicInteger failedCombinations = new AtomicInteger();
+  private final List<Pending> pendingCompile = new ArrayList<>();
+  private RunSettings runSettings;
+  private Journal journal;
+  private StateStore stateStore;
+  private Partition partition = Partition.ALL;
+  private long nextIndex;
+
+  private final Map<String, Double> prefixGasPerSecond = new HashMap<>();
+
+  @CommandLine.Spec private CommandLine.Model.CommandSpec spec;
+
+  private record Pending(long index, List<Step> steps) {}
+
+  public enum Enumeration {
+    ordered,
+    multiset
+  }
+
   public static void main(String[] args) {
     CartEVM cartevm = new CartEVM();
 
     CommandLine commandLine = new CommandLine(cartevm);
-    commandLine.execute(args);
+    System.exit(commandLine.execute(args));
   }
 
   public void runCase(List<Step> candidates, List<Step> chosen, int moreSteps, boolean verbose)
       throws IOException {
-    if (moreSteps < 1) {
-      createFiller(chosen);
-      createBytecode(chosen);
-      runLocal(chosen, verbose);
-    } else {
-      for (Step step : candidates) {
-        chosen.add(step);
-        runCase(candidates, chosen, moreSteps - 1, verbose);
-        chosen.remove(chosen.size() - 1);
-      }
-    }
+    runCase(0, candidates, chosen, moreSteps, verbose);
   }
 
   public void runCase(
       int start, List<Step> candidates, List<Step> chosen, int moreSteps, boolean verbose)
       throws IOException {
     if (moreSteps < 1) {
-      createFiller(chosen);
-      createBytecode(chosen);
-      runLocal(chosen, verbose);
+      if (slowStepsRegExp == null
+          || chosen.stream().anyMatch(step -> step.getName().matches(slowStepsRegExp))) {
+        runCombination(chosen, verbose);
+      } else {
+        // filtered combinations keep their index, so shards agree regardless of the filter
+        nextIndex++;
+      }
+    } else if (!chosen.isEmpty() && isPruned(chosen)) {
+      nextIndex += leafCount(candidates.size() - start, moreSteps);
     } else {
       for (int i = start; i < candidates.size(); i++) {
         Step step = candidates.get(i);
         chosen.add(step);
-        runCase(candidates, chosen, moreSteps - 1, verbose);
+        // multisets only extend with the same or later steps, so add__mul but never mul__add
+        int nextStart = enumeration == Enumeration.multiset ? i : 0;
+        runCase(nextStart, candidates, chosen, moreSteps - 1, verbose);
         chosen.remove(chosen.size() - 1);
       }
     }
   }
 
+  /** The number of leaves below a node with this many candidates and steps still to add. */
+  long leafCount(int candidates, int moreSteps) {
+    return switch (enumeration) {
+      case ordered -> LongMath.checkedPow(candidates, moreSteps);
+      case multiset -> LongMath.binomial(candidates + moreSteps - 1, moreSteps);
+    };
+  }
+
+  /** The index of the first combination {@code --steps-resume} starts on. */
+  long resumeIndex(int candidates) {
+    long skipped = 0;
+    for (int i = 0; i < Math.min(stepsPartial, candidates); i++) {
+      // a multiset's first step is only followed by itself and the later steps
+      int followers = enumeration == Enumeration.multiset ? candidates - i : candidates;
+      skipped += leafCount(followers, steps - 1);
+    }
+    return skipped;
+  }
+
+  /** Names the enumeration, so a journal is only resumed by a sweep with the same indices. */
+  private String sweep(List<Step> candidates) {
+    String names = candidates.stream().map(Step::getName).collect(Collectors.joining(","));
+    return Hashing.sha256()
+        .hashUnencodedChars(enumeration + "\t" + steps + "\t" + names)
+        .toString();
+  }
+
+  private boolean isPruned(List<Step> prefix) {
+    if (pruneAbove == null) {
+      return false;
+    }
+    double gasPerSecond =
+        prefixGasPerSecond.computeIfAbsent(
+            name(prefix),
+            name ->
+                new LocalRunner(List.copyOf(prefix), gasLimit, sizeLimit, runSettings)
+                    .measureGasPerSecond());
+    // a prefix that did not complete was not really measured, so it is never pruned
+    return !Double.isNaN(gasPerSecond) && gasPerSecond > pruneAbove;
+  }
+
+  private void runCombination(List<Step> chosen, boolean verbose) throws IOException {
+    // every combination gets an index, even the ones skipped here, so all hosts agree on them
+    long index = nextIndex++;
+    if (!partition.claims(runSettings.run(), index)) {
+      return;
+    }
+    if (journal != null && journal.isCompleted(runSettings.run(), index)) {
+      return;
+    }
+    if (solc && solcBatch > 1 && (local || bytecode)) {
+      pendingCompile.add(new Pending(index, List.copyOf(chosen)));
+      if (pendingCompile.size() >= solcBatch) {
+        flushPendingCompile(verbose);
+      }
+    } else {
+      dispatchCombination(index, chosen, verbose);
+    }
+  }
+
+  private void flushPendingCompile(boolean verbose) throws IOException {
+    BatchCompiler.prime(
+        pendingCompile.stream()
+            .map(pending -> new CodeGenerator(pending.steps(), gasLimit, sizeLimit))
+            .toList());
+    for (Pending pending : pendingCompile) {
+      dispatchCombination(pending.index(), pending.steps(), verbose);
+    }
+    pendingCompile.clear();
+  }
+
+  private void dispatchCombination(long index, List<Step> chosen, boolean verbose)
+      throws IOException {
+    if (executor == null) {
+      createFiller(chosen);
+      createBytecode(chosen);
+      runLocal(index, chosen, verbose);
+      markCompleted(index);
+      return;
+    }
+    // the enumeration keeps mutating chosen, so each task gets its own copy
+    List<Step> combination = List.copyOf(chosen);
+    inFlight.acquireUninterruptibly();
+    executor.execute(
+        () -> {
+          try {
+            createFiller(combination);
+            createBytecode(combination);
+            runLocal(index, combination, verbose);
+            markCompleted(index);
+          } catch (IOException | RuntimeException e) {
+            // the other workers carry on, the failure shows in the exit status
+            failedCombinations.incrementAndGet();
+            e.printStackTrace();
+          } finally {
+            inFlight.release();
+          }
+        });
+  }
+
+  static String name(List<Step> combination) {
+    return combination.stream().map(Step::getName).collect(Collectors.joining("__"));
+  }
+
+  private void markCompleted(long index) {
+    if (journal != null) {
+      journal.markCompleted(runSettings.run(), index);
+    }
+  }
+
+  private void awaitCombinations() {
+    if (executor != null) {
+      inFlight.acquireUninterruptibly(maxInFlight);
+      inFlight.release(maxInFlight);
+    }
+  }
+
   private void createFiller(List<Step> chosen) throws IOException {
     if (!filler) {
       return;
@@ -163,30 +576,284 @@ public class CartEVM implements Runnable {
     byteCodeOutput.createBytecode(outDir);
   }
 
-  private void runLocal(List<Step> chosen, boolean verbose) {
+  private void runLocal(long index, List<Step> chosen, boolean verbose) {
     if (!local) {
       return;
     }
-    new LocalRunner(chosen, gasLimit, sizeLimit).execute(verbose);
+    new LocalRunner(chosen, gasLimit, sizeLimit, runSettings).execute(index, verbose);
+  }
+
+  private void merge(List<File> files) throws IOException {
+    if (resultsFile == null) {
+      throw new IllegalArgumentException("--merge needs --results to write to");
+    }
+    // a resumed sweep can write a result again if it crashed before journaling it, keep the first
+    Map<String, RunResult> unique = new LinkedHashMap<>();
+    int read = 0;
+    for (File file : files) {
+      for (RunResult result : ResultReader.read(file.toPath())) {
+        unique.putIfAbsent(result.run() + "/" + result.index() + "/" + result.fork(), result);
+        read++;
+      }
+    }
+    if (read > unique.size()) {
+      System.err.printf("Dropped %,d duplicate results%n", read - unique.size());
+    }
+    List<RunResult> results = new ArrayList<>(unique.values());
+    // runs count down, so the last run of the sweep sorts last like it ran
+    results.sort(
+        Comparator.comparing(RunResult::run)
+            .reversed()
+            .thenComparing(RunResult::index)
+            .thenComparing(RunResult::fork));
+    try (ResultSink sink =
+        FileResultSink.create(resultsFile.toPath(), resultsFormat, resultsFlush, false)) {
+      results.forEach(sink::accept);
+    }
+  }
+
+  private Partition createPartition() throws IOException {
+    if (leaseDir != null) {
+      String owner = leaseOwner != null ? leaseOwner : InetAddress.getLocalHost().getHostName();
+      return new LeasePartition(leaseDir.toPath(), leaseSize, owner);
+    } else if (shard != null) {
+      return Partition.shard(shard);
+    } else {
+      return Partition.ALL;
+    }
+  }
+
+  /** Rejects combinations of options that picocli cannot check on its own. */
+  private void validate() {
+    // a multiset never extends a prefix with an earlier step, so pruning a fast prefix would drop
+    // the combinations where a slow step follows it, never to be measured in another order
+    if (pruneAbove != null && enumeration == Enumeration.multiset) {
+      throw new CommandLine.ParameterException(
+          spec.commandLine(), "--prune-above needs --enumeration ordered");
+    }
+    if (coldSteps && gasLimit >= ColdSteps.maxGasLimit()) {
+      throw new CommandLine.ParameterException(
+          spec.commandLine(),
+          "--cold-steps would revisit accounts from a --gas-limit of %d"
+              .formatted(ColdSteps.maxGasLimit()));
+    }
+    // the precompile inputs and output sit inside the large memory, so they must not share a loop
+    if (precompileSteps && !memorySizes.isEmpty() && steps > 1) {
+      throw new CommandLine.ParameterException(
+          spec.commandLine(), "--precompile-steps and --memory-sizes need --steps 1");
+    }
+    // Welch's t-test needs two samples per combination, with one no change is ever significant
+    if (baselineFile != null && iterations < 2) {
+      throw new CommandLine.ParameterException(
+          spec.commandLine(), "--baseline needs --iterations 2 or more");
+    }
+    // the search measures one sequence at a time, each level picked from the last, and its indices
+    // depend on what was kept, so they cannot be shared out, claimed or journaled
+    if (beamWidth != null
+        && (threads > 1 || shard != null || leaseDir != null || journalFile != null)) {
+      throw new CommandLine.ParameterException(
+          spec.commandLine(),
+          "--beam-width cannot be combined with --threads, --shard, --lease-dir or --journal");
+    }
+    if (top != null && top < 1) {
+      throw new CommandLine.ParameterException(spec.commandLine(), "--top must be at least 1");
+    }
   }
 
   @Override
-  public void run() {
+  public Integer call() {
+    validate();
+    if (mergeFiles != null) {
+      try {
+        merge(mergeFiles);
+      } catch (IOException e) {
+        e.printStackTrace();
+        return 1;
+      }
+      return 0;
+    }
     try {
-      for (int i = repeat; i > 0; i--) {
+      for (File catalog : stepCatalogs) {
+        StepCatalog.merge(Step.steps, StepCatalog.load(catalog.toPath()));
+      }
+      if (operandSweep) {
+        StepCatalog.merge(Step.steps, OperandSweep.steps());
+      }
+      StepCatalog.merge(Step.steps, MemorySteps.steps(memorySizes, forks));
+      if (coldSteps) {
+        StepCatalog.merge(Step.steps, ColdSteps.steps());
+        LocalRunner.useColdSteps();
+      }
+      if (precompileSteps) {
+        StepCatalog.merge(Step.steps, PrecompileSteps.steps());
+      }
+      if (stateDir != null) {
+        stateStore = StateStore.open(stateDir.toPath(), stateSeed, stateAccounts, stateSlots);
+        LocalRunner.useStateStore(stateStore);
+        StepCatalog.merge(Step.steps, LargeStateSteps.steps(stateAccounts, stateSlots));
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      e.printStackTrace();
+      return 1;
+    }
+    List<Step> candidates =
+        Step.steps.stream()
+            .filter(s -> s.getName().matches(stepsRegExp))
+            .filter(s -> stepTags.isEmpty() || s.getTags().stream().anyMatch(stepTags::contains))
+            .toList();
+    if (calibrate) {
+      CodeGenerator.setUseSolc(solc);
+      int mismatches =
+          GasCalibration.measure(candidates, gasLimit, sizeLimit, forks.get(0))
+              .report(candidates, System.out);
+      return mismatches > 0 ? 2 : 0;
+    }
+    ResultSink sink;
+    BaselineComparison comparison = null;
+    MispricingRanking ranking = null;
+    CostCurveFit costCurves = null;
+    try {
+      // a resumed sweep appends to the results of the earlier attempts
+      sink =
+          resultsFile == null
+              ? new ConsoleResultSink(forks.size() > 1)
+              : FileResultSink.create(
+                  resultsFile.toPath(), resultsFormat, resultsFlush, journalFile != null);
+      if (baselineFile != null) {
+        comparison = new BaselineComparison(sink, ResultReader.read(baselineFile.toPath()));
+        sink = comparison;
+      }
+      if (top != null) {
+        ranking = new MispricingRanking(sink, top);
+        sink = ranking;
+      }
+      if (operandSweep || precompileSteps || !memorySizes.isEmpty()) {
+        costCurves = new CostCurveFit(sink, Step.steps, gasLimit, sizeLimit);
+        sink = costCurves;
+      }
+      partition = createPartition();
+      if (journalFile != null) {
+        journal = new Journal(journalFile.toPath(), sweep(candidates), journalSync, sink);
+        if (journal.size() > 0) {
+          System.err.printf("Resuming, %,d combinations already completed%n", journal.size());
+        }
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+      return 1;
+    }
+    RunSettings settings =
+        new RunSettings(
+            warmup,
+            iterations,
+            maxVariation,
+            sink,
+            1,
+            traceOpcodes ? Math.max(1, traceSample) : 0,
+            forks,
+            measureAllocation,
+            prewarm);
+    CodeGenerator.setUseSolc(solc);
+    if (cacheDir != null) {
+      CodeGenerator.setPersistentCache(
+          new BytecodeCache(cacheDir.toPath(), cacheSizeLimit * 1024 * 1024));
+    }
+    if (useCalibration) {
+      CodeGenerator.setCalibration(
+          GasCalibration.measure(candidates, gasLimit, sizeLimit, forks.get(0)));
+    }
+    if (ranking != null) {
+      // the empty loop harness, measured whether or not the sweep includes it
+      Step nothing =
+          Step.steps.stream().filter(s -> s.getName().equals("nothing")).findFirst().orElseThrow();
+      for (LocalRunner.Measurement measurement :
+          new LocalRunner(List.of(nothing), gasLimit, sizeLimit, settings).measure()) {
+        ranking.setNothingNanosPerGas(
+            measurement.fork(),
+            Statistics.of(measurement.nanos()).median() / measurement.gasUsed());
+      }
+    }
+    if (threads > 1) {
+      executor = Executors.newFixedThreadPool(threads);
+      // bound the queued combinations, a three step sweep has millions of them
+      maxInFlight = threads * 4;
+      inFlight = new Semaphore(maxInFlight);
+    }
+    try {
+      if (beamWidth != null) {
+        runSettings = settings;
         LocalRunner.resetCumulative();
-        runCase(
-            stepsPartial,
-            Step.steps.stream().filter(s -> s.getName().matches(stepsRegExp)).toList(),
-            new ArrayList<>(steps),
-            steps,
-            verbose || i == 1);
-        if (local) {
-          LocalRunner.reportCumulative();
+        List<BeamSearch.Scored> beam =
+            new BeamSearch(
+                    candidates,
+                    steps,
+                    beamWidth,
+                    timeBudget,
+                    (sequence, index, verbose) ->
+                        new LocalRunner(sequence, gasLimit, sizeLimit, runSettings)
+                            .execute(index, verbose))
+                .search(true);
+        for (BeamSearch.Scored scored : beam) {
+          System.err.printf("%s\t%,.0f%n", name(scored.steps()), scored.gasPerSecond());
+        }
+        LocalRunner.reportCumulative();
+      } else {
+        for (int i = repeat; i > 0; i--) {
+          runSettings = settings.withRun(i);
+          nextIndex = resumeIndex(candidates.size());
+          LocalRunner.resetCumulative();
+          runCase(
+              stepsPartial,
+              candidates,
+              new ArrayList<>(steps),
+              steps,
+              verbose || i == 1);
+          flushPendingCompile(verbose || i == 1);
+          awaitCombinations();
+          if (local) {
+            LocalRunner.reportCumulative();
+          }
         }
       }
     } catch (IOException e) {
       e.printStackTrace();
+      return 1;
+    } finally {
+      if (executor != null) {
+        executor.shutdown();
+        try {
+          executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      if (journal != null) {
+        try {
+          journal.close();
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      }
+      if (stateStore != null) {
+        try {
+          stateStore.close();
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      }
+      sink.close();
+    }
+    if (ranking != null) {
+      ranking.report(System.out);
+    }
+    if (costCurves != null) {
+      costCurves.report(System.out);
+    }
+    int regressions = comparison == null ? 0 : comparison.report(System.out, regressionThreshold);
+    if (failedCombinations.get() > 0) {
+      System.err.printf("%,d combinations failed%n", failedCombinations.get());
+      return 1;
     }
+    return regressions > 0 ? 2 : 0;
   }
 }
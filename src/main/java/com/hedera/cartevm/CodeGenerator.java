@@ -20,6 +20,9 @@ package com.hedera.cartevm;
  * ‍
  */
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -27,6 +30,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 public class CodeGenerator {
@@ -44,6 +48,18 @@ public class CodeGenerator {
 					""";
   public static final long HARNESS_OVERHEAD_ONE_TIME = 32;
   public static final long HARNESS_OVERHEAD_EACH_LOOP = 51;
+  static final List<String> SOLC_COMMAND =
+      List.of("solc", "--evm-version=paris", "--assemble", "-");
+
+  // shared by every generator so repeats of a combination only compile once per process
+  static final LoadingCache<String, String> bytecodeCache =
+      CacheBuilder.newBuilder()
+          .maximumSize(10_000)
+          .build(CacheLoader.from(CodeGenerator::compileCached));
+  static BytecodeCache persistentCache;
+  static boolean useSolc = false;
+  static GasCalibration calibration;
+
   final List<Step> steps;
   final long gasLimit;
   final int sizeLimit;
@@ -58,11 +74,16 @@ public class CodeGenerator {
     return steps.stream().map(Step::getName).collect(Collectors.joining("__"));
   }
 
-  public String generate(String template) {
-    StringBuilder inner = new StringBuilder();
+  record Program(
+      long totalLoops, int iterationCount, String globalSetup, String body, String globalCleanup) {
 
-    List<Step> backwardsSteps = new ArrayList<>(steps);
-    Collections.reverse(backwardsSteps);
+    /** How many times each step executes. */
+    long executions() {
+      return totalLoops * iterationCount;
+    }
+  }
+
+  Program layout() {
     int overheadSize =
         200
             + steps.stream()
@@ -79,18 +100,38 @@ public class CodeGenerator {
             * 2;
     int iterationCount = iterationSize == 0 ? 1 : (sizeLimit - overheadSize) / iterationSize;
 
-    long setupGas =
-        HARNESS_OVERHEAD_ONE_TIME + steps.stream().mapToLong(Step::getGasOverhead).sum();
+    long harnessOneTime =
+        calibration == null ? HARNESS_OVERHEAD_ONE_TIME : calibration.harnessOneTime();
+    long harnessEachLoop =
+        calibration == null ? HARNESS_OVERHEAD_EACH_LOOP : calibration.harnessEachLoop();
+    long setupGas = harnessOneTime + steps.stream().mapToLong(this::gasOverhead).sum();
     long gasForLoops = gasLimit - setupGas;
-    long gasPerIteration = (steps.stream().mapToLong(Step::getGasCost).sum());
+    long gasPerIteration = (steps.stream().mapToLong(this::gasCost).sum());
 
-    long iterationGas = HARNESS_OVERHEAD_EACH_LOOP + gasPerIteration * iterationCount;
+    long iterationGas = harnessEachLoop + gasPerIteration * iterationCount;
     while (iterationGas > gasForLoops && iterationCount > 1) {
       iterationCount /= 2;
-      iterationGas = HARNESS_OVERHEAD_EACH_LOOP + gasPerIteration * iterationCount;
+      iterationGas = harnessEachLoop + gasPerIteration * iterationCount;
     }
     long totalLoops = gasForLoops / iterationGas;
 
+    return layout(iterationCount, totalLoops);
+  }
+
+  long gasCost(Step step) {
+    return calibration == null ? step.getGasCost() : calibration.forStep(step).cost();
+  }
+
+  long gasOverhead(Step step) {
+    return calibration == null ? step.getGasOverhead() : calibration.forStep(step).overhead();
+  }
+
+  /** Lay out exactly this many unrolled iterations, looped this many times. */
+  Program layout(int iterationCount, long totalLoops) {
+    StringBuilder inner = new StringBuilder();
+
+    List<Step> backwardsSteps = new ArrayList<>(steps);
+    Collections.reverse(backwardsSteps);
     for (int i = 0; i < iterationCount; i++) {
       // weaving setup doesn't work well with dup and swap
       // switch (i % 2) {
@@ -122,19 +163,74 @@ public class CodeGenerator {
             .map(Step::getGlobalCleanupCode)
             .filter(s -> !s.isEmpty())
             .collect(Collectors.joining());
+    return new Program(totalLoops, iterationCount, globalSetup, inner.toString(), globalCleanup);
+  }
+
+  public String generate(String template) {
+    return generate(template, layout());
+  }
+
+  String generate(String template, Program program) {
     return template.formatted(
         getName(),
-        totalLoops,
-        globalSetup.isEmpty() ? "" : "verbatim_0i_0o(hex\"" + globalSetup + "\")",
-        inner.isEmpty() ? "" : "verbatim_0i_0o(hex\"" + inner + "\")",
-        globalCleanup.isEmpty() ? "" : "verbatim_0i_0o(hex\"" + globalCleanup + "\")",
+        program.totalLoops(),
+        verbatim(program.globalSetup()),
+        verbatim(program.body()),
+        verbatim(program.globalCleanup()),
         gasLimit);
   }
 
-  public String compileYul(String yulSource) {
+  static String verbatim(String code) {
+    return code.isEmpty() ? "" : "verbatim_0i_0o(hex\"" + code + "\")";
+  }
+
+  public static void setCalibration(GasCalibration gasCalibration) {
+    calibration = gasCalibration;
+  }
+
+  public static void setUseSolc(boolean solc) {
+    useSolc = solc;
+  }
+
+  /** The hex encoded runtime code of the harness, assembled in process unless solc is requested. */
+  public String bytecode() {
+    return bytecode(layout());
+  }
+
+  String bytecode(Program program) {
+    if (useSolc) {
+      return compile(generate(yulTemplate, program));
+    } else {
+      return HarnessAssembler.assemble(program);
+    }
+  }
+
+  public static void setPersistentCache(BytecodeCache cache) {
+    persistentCache = cache;
+  }
+
+  public String compile(String yulSource) {
+    return bytecodeCache.getUnchecked(yulSource);
+  }
+
+  static String compileCached(String yulSource) {
+    if (persistentCache != null) {
+      Optional<String> cached = persistentCache.get(SOLC_COMMAND, yulSource);
+      if (cached.isPresent()) {
+        return cached.get();
+      }
+    }
+    String bytecode = compileYul(yulSource);
+    // don't persist failures, a later run may have a working solc
+    if (persistentCache != null && bytecode != null && !"FE".equals(bytecode)) {
+      persistentCache.put(SOLC_COMMAND, yulSource, bytecode);
+    }
+    return bytecode;
+  }
+
+  public static String compileYul(String yulSource) {
     try {
-      ProcessBuilder pb =
-          new ProcessBuilder().command("solc", "--evm-version=paris", "--assemble", "-");
+      ProcessBuilder pb = new ProcessBuilder().command(SOLC_COMMAND);
       Process p = pb.start();
       try {
         p.getOutputStream().write(yulSource.getBytes(StandardCharsets.UTF_8));
@@ -0,0 +1,213 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static com.hedera.cartevm.LargeStateSteps.INDEX_GAS;
+import static com.hedera.cartevm.LargeStateSteps.nextIndex;
+import static com.hedera.cartevm.OperandSweep.memoryCost;
+import static com.hedera.cartevm.Step.OP_ADD;
+import static com.hedera.cartevm.Step.OP_BALANCE;
+import static com.hedera.cartevm.Step.OP_CALL;
+import static com.hedera.cartevm.Step.OP_CALLCODE;
+import static com.hedera.cartevm.Step.OP_DELEGATECALL;
+import static com.hedera.cartevm.Step.OP_EXTCODECOPY;
+import static com.hedera.cartevm.Step.OP_EXTCODEHASH;
+import static com.hedera.cartevm.Step.OP_EXTCODESIZE;
+import static com.hedera.cartevm.Step.OP_GAS;
+import static com.hedera.cartevm.Step.OP_MSTORE;
+import static com.hedera.cartevm.Step.OP_POP;
+import static com.hedera.cartevm.Step.OP_SLOAD;
+import static com.hedera.cartevm.Step.OP_SSTORE;
+import static com.hedera.cartevm.Step.OP_STATICCALL;
+import static com.hedera.cartevm.Step.RETURN_CONTRACT_ADDRESS;
+import static com.hedera.cartevm.Step.REVERT_CONTRACT_ADDRESS;
+import static com.hedera.cartevm.Step.push;
+
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.bytes.Bytes32;
+import org.apache.tuweni.units.bigints.UInt256;
+import org.hyperledger.besu.datatypes.Address;
+import org.hyperledger.besu.datatypes.Wei;
+import org.hyperledger.besu.evm.account.MutableAccount;
+import org.hyperledger.besu.evm.worldstate.WorldUpdater;
+
+/**
+ * Cold variants of the steps that touch accounts or storage. The plain steps use the same address
+ * or slot on every iteration, so after the first one they only measure the warm path. These touch
+ * a fresh one of {@link #COUNT} pre-created accounts or receiver slots every iteration instead,
+ * picked by an index kept in memory at 0x3A0. The index wraps after {@code COUNT} accesses, so the
+ * gas limit has to stay below {@link #maxGasLimit()} for all of them to be cold.
+ *
+ * <p>With prewarming the same accounts and slots are put in the access list of the transaction, so
+ * the same programs measure the warm path and the two runs can be compared directly.
+ */
+public class ColdSteps {
+
+  static final String GROUP = "cold";
+  static final int COUNT = 1 << 14;
+  static final String INDEX = "03A0";
+  static final String PREFIX = "c01d";
+  // the index, a push and an add
+  static final int ADDRESS_GAS = INDEX_GAS + 6;
+  static final int COLD_ACCOUNT = 2600;
+  static final int COLD_SLOAD = 2100;
+  // the code of the return contract, including its memory expansion
+  static final int CALLEE_GAS = 17;
+  // the memory expansion to just past the index, paid once
+  static final int INDEX_OVERHEAD = memoryCost(0x3A0 + 32);
+
+  static final Set<Address> WARM_ADDRESSES = warmAddresses();
+  static final ImmutableMultimap<Address, Bytes32> WARM_STORAGE = warmStorage();
+
+  private ColdSteps() {}
+
+  static Address address(int index) {
+    return Address.fromHexString(PREFIX + "%036x".formatted(index));
+  }
+
+  static UInt256 slot(int index) {
+    return UInt256.fromHexString(PREFIX + "%060x".formatted(index));
+  }
+
+  /**
+   * The gas limit from which a program could make more than {@link #COUNT} cold accesses, after
+   * which the index wraps and the accesses are warm.
+   */
+  static long maxGasLimit() {
+    return (long) COUNT * steps().stream().mapToInt(Step::getGasCost).min().orElseThrow();
+  }
+
+  /** Create the accounts and receiver slots the cold steps touch. */
+  static void prexistingState(WorldUpdater worldUpdater, MutableAccount receiver) {
+    Bytes code = worldUpdater.get(Address.fromHexString(RETURN_CONTRACT_ADDRESS)).getCode();
+    for (int i = 0; i < COUNT; i++) {
+      MutableAccount account = worldUpdater.getOrCreate(address(i));
+      account.setBalance(Wei.of(i + 1));
+      account.setCode(code);
+      receiver.setStorageValue(slot(i), UInt256.ONE);
+    }
+  }
+
+  private static Set<Address> warmAddresses() {
+    ImmutableSet.Builder<Address> addresses = ImmutableSet.builder();
+    addresses.add(Address.fromHexString(RETURN_CONTRACT_ADDRESS));
+    addresses.add(Address.fromHexString(REVERT_CONTRACT_ADDRESS));
+    for (int i = 0; i < COUNT; i++) {
+      addresses.add(address(i));
+    }
+    return addresses.build();
+  }
+
+  private static ImmutableMultimap<Address, Bytes32> warmStorage() {
+    ImmutableMultimap.Builder<Address, Bytes32> storage = ImmutableMultimap.builder();
+    storage.put(LocalRunner.RECEIVER, UInt256.fromHexString("54"));
+    storage.put(LocalRunner.RECEIVER, UInt256.fromHexString("55"));
+    for (int i = 0; i < COUNT; i++) {
+      storage.put(LocalRunner.RECEIVER, slot(i));
+    }
+    return storage.build();
+  }
+
+  public static List<Step> steps() {
+    String address = nextIndex(INDEX, COUNT) + push(PREFIX + "00".repeat(18)) + OP_ADD;
+    String slot = nextIndex(INDEX, COUNT) + push(PREFIX + "00".repeat(30)) + OP_ADD;
+    String callArgs = push("20", "01E0", "20", "0200", "00");
+    String callCodeArgs = push("20", "0220", "20", "0240", "00");
+    int call = 15 + ADDRESS_GAS + 2 + COLD_ACCOUNT + CALLEE_GAS + 2;
+    return List.of(
+        step("balance_cold", "", address, OP_POP, OP_BALANCE, ADDRESS_GAS + COLD_ACCOUNT + 2),
+        step(
+            "extcodesize_cold",
+            "",
+            address,
+            OP_POP,
+            OP_EXTCODESIZE,
+            ADDRESS_GAS + COLD_ACCOUNT + 2),
+        step(
+            "extcodecopy_cold",
+            "",
+            push("80", "00", "40") + address,
+            "",
+            OP_EXTCODECOPY,
+            9 + ADDRESS_GAS + COLD_ACCOUNT + 3 * 4),
+        step(
+            "extcodehash_cold",
+            "",
+            address,
+            OP_POP,
+            OP_EXTCODEHASH,
+            ADDRESS_GAS + COLD_ACCOUNT + 2),
+        step("sload_cold", "", slot, OP_POP, OP_SLOAD, ADDRESS_GAS + COLD_SLOAD + 2),
+        // the slots hold one, so every store is a cold reset
+        step("sstore_cold", "", push("55") + slot, "", OP_SSTORE, 3 + ADDRESS_GAS + 5000),
+        step(
+            "call_cold",
+            push("1337", "0200") + OP_MSTORE,
+            callArgs + address + OP_GAS,
+            OP_POP,
+            OP_CALL,
+            call),
+        step(
+            "callcode_cold",
+            push("6a51", "0240") + OP_MSTORE,
+            callCodeArgs + address + OP_GAS,
+            OP_POP,
+            OP_CALLCODE,
+            call),
+        step(
+            "delegatecall_cold",
+            push("E11E", "0280") + OP_MSTORE,
+            push("20", "0260", "00", "0280") + address + OP_GAS,
+            OP_POP,
+            OP_DELEGATECALL,
+            call - 3),
+        step(
+            "staticcall_cold",
+            push("C0DE", "02E0") + OP_MSTORE,
+            push("20", "02C0", "20", "02E0") + address + OP_GAS,
+            OP_POP,
+            OP_STATICCALL,
+            call - 3));
+  }
+
+  private static Step step(
+      String name,
+      String globalSetup,
+      String localSetup,
+      String localCleanup,
+      String execution,
+      int gasCost) {
+    return new Step(
+        name,
+        globalSetup,
+        "",
+        localSetup,
+        localCleanup,
+        execution,
+        gasCost,
+        INDEX_OVERHEAD + (globalSetup.isEmpty() ? 0 : 9),
+        Set.of(GROUP));
+  }
+}
@@ -0,0 +1,102 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+/**
+ * The tab separated rows written to stdout. Opcode breakdowns follow their row, indented by a
+ * tab.
+ */
+public class ConsoleResultSink implements ResultSink {
+
+  private final boolean withFork;
+
+  public ConsoleResultSink() {
+    this(false);
+  }
+
+  /**
+   * @param withFork start each row with the fork, for sweeps over more than one
+   */
+  public ConsoleResultSink(boolean withFork) {
+    this.withFork = withFork;
+  }
+
+  @Override
+  public void accept(RunResult result) {
+    Statistics time = result.time();
+    String statistics = "";
+    if (time.count() > 1) {
+      statistics =
+          "%,.3f\t%,.3f\t%,.3f\t%,.3f\t%,.3f\t%,.3f\t%,.0f\t%,.0f\t%s\t"
+              .formatted(
+                  time.min() / 1000.0,
+                  time.mean() / 1000.0,
+                  time.p90() / 1000.0,
+                  time.p99() / 1000.0,
+                  time.stddev() / 1000.0,
+                  time.confidence95() / 1000.0,
+                  result.throughput().mean(),
+                  result.throughput().confidence95(),
+                  result.noisy() ? "NOISY" : "");
+    }
+    String allocation = "";
+    if (result.allocation() != null) {
+      allocation =
+          "%,d\t%,.1f\t%,d\t%,d\t"
+              .formatted(
+                  result.allocation().allocatedBytes(),
+                  result.allocation().bytesPerGas(result.gasUsed()),
+                  result.allocation().processGcCount(),
+                  result.allocation().processGcMillis());
+    }
+    System.out.printf(
+        "%s%s\t%s\t%,d\t%,.3f\t%,.0f\t%,.3f\t%s%s%s%n",
+        withFork ? result.fork() + "\t" : "",
+        String.join("\t", result.steps()),
+        result.haltReason(),
+        result.gasUsed(),
+        result.nanos() / 1000.0,
+        result.gasPerSecond(),
+        result.setupNanos() / 1000.0,
+        statistics,
+        allocation,
+        result.revert());
+    if (result.opcodes() != null) {
+      printBreakdown(result.opcodes());
+    }
+  }
+
+  static void printBreakdown(OpcodeBreakdown breakdown) {
+    System.out.printf(
+        "\topcode\tcount\tgas\tus\t%%time\tns/gas\t(1 in %d sampled, tracer overhead %,.3f us)%n",
+        breakdown.sampleEvery(), breakdown.tracerOverheadNanos() / 1000.0);
+    for (OpcodeBreakdown.Entry entry : breakdown.entries()) {
+      System.out.printf(
+          "\t%s\t%,d\t%,d\t%,.3f\t%.1f\t%.3f%n",
+          entry.name(),
+          entry.count(),
+          entry.gas(),
+          entry.nanos() / 1000.0,
+          entry.nanos() * 100.0 / breakdown.untracedNanos(),
+          entry.gas() == 0 ? 0.0 : entry.nanos() / entry.gas());
+    }
+  }
+}
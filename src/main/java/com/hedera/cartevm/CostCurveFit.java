@@ -0,0 +1,154 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Passes results on to another sink while collecting those of single {@link OperandSweep} and
+ * {@link MemorySteps} steps, and fits a straight line of time per execution against operand or
+ * memory size for each family.
+ *
+ * <p>The number of executions is taken from the layout the step was run with, and both the time
+ * and the gas used are divided by it. The harness and the global setup are spread over the
+ * executions alike, so memory expanded once, or by {@code mgrow} a word at a time, shows up in the
+ * gas slope just as it does in the time slope. The fitted time slope is compared with the gas
+ * slope, so the marginal nanoseconds per gas show whether the size dependent part is priced like
+ * the rest.
+ */
+public class CostCurveFit implements ResultSink {
+
+  record Point(int size, double nanos, double gas) {}
+
+  record Line(double intercept, double slope, double rSquared) {
+
+    static Line fit(List<Point> points, boolean ofGas) {
+      int n = points.size();
+      double meanX = points.stream().mapToDouble(Point::size).average().orElse(0);
+      double meanY =
+          points.stream().mapToDouble(p -> ofGas ? p.gas() : p.nanos()).average().orElse(0);
+      double covariance = 0;
+      double varianceX = 0;
+      double varianceY = 0;
+      for (Point point : points) {
+        double dx = point.size() - meanX;
+        double dy = (ofGas ? point.gas() : point.nanos()) - meanY;
+        covariance += dx * dy;
+        varianceX += dx * dx;
+        varianceY += dy * dy;
+      }
+      if (n < 2 || varianceX == 0) {
+        return new Line(meanY, 0, 0);
+      }
+      double slope = covariance / varianceX;
+      double rSquared = varianceY == 0 ? 1 : covariance * covariance / (varianceX * varianceY);
+      return new Line(meanY - slope * meanX, slope, rSquared);
+    }
+  }
+
+  private final ResultSink delegate;
+  private final Map<String, Step> steps;
+  private final long gasLimit;
+  private final int sizeLimit;
+  private final Map<String, List<Point>> families = new TreeMap<>();
+
+  public CostCurveFit(ResultSink delegate, List<Step> steps, long gasLimit, int sizeLimit) {
+    this.delegate = delegate;
+    this.gasLimit = gasLimit;
+    this.sizeLimit = sizeLimit;
+    this.steps = new TreeMap<>();
+    steps.forEach(step -> this.steps.put(step.getName(), step));
+  }
+
+  @Override
+  public void accept(RunResult result) {
+    delegate.accept(result);
+    // a halted program ran an unknown number of executions
+    if (result.run() != 1
+        || result.steps().size() != 1
+        || !"COMPLETED_SUCCESS".equals(result.haltReason())) {
+      return;
+    }
+    OperandSweep.Sized sized = OperandSweep.sizeOf(result.steps().get(0));
+    Step step = steps.get(result.steps().get(0));
+    if (sized == null || step == null) {
+      return;
+    }
+    double executions = new CodeGenerator(List.of(step), gasLimit, sizeLimit).layout().executions();
+    if (executions == 0) {
+      return;
+    }
+    synchronized (families) {
+      families
+          .computeIfAbsent(result.fork() + "/" + sized.family(), k -> new ArrayList<>())
+          .add(new Point(sized.size(), result.nanos() / executions, result.gasUsed() / executions));
+    }
+  }
+
+  List<Point> points(String family) {
+    synchronized (families) {
+      return List.copyOf(families.getOrDefault(family, List.of()));
+    }
+  }
+
+  @Override
+  public void flush() {
+    delegate.flush();
+  }
+
+  @Override
+  public void sync() {
+    delegate.sync();
+  }
+
+  @Override
+  public void close() {
+    delegate.close();
+  }
+
+  public void report(PrintStream out) {
+    synchronized (families) {
+      // only single step combinations are fitted, so a sweep of longer ones has nothing to show
+      if (families.isEmpty()) {
+        out.println("No single step results of sized steps to fit cost curves to, use --steps 1");
+        return;
+      }
+      out.println("family\tpoints\tns\tns/byte\tr2\tgas/byte\tmarginal ns/gas");
+      for (Map.Entry<String, List<Point>> family : families.entrySet()) {
+        Line time = Line.fit(family.getValue(), false);
+        Line gas = Line.fit(family.getValue(), true);
+        out.printf(
+            "%s\t%d\t%.1f\t%.4f\t%.3f\t%.4f\t%s%n",
+            family.getKey(),
+            family.getValue().size(),
+            time.intercept(),
+            time.slope(),
+            time.rSquared(),
+            gas.slope(),
+            gas.slope() == 0 ? "" : "%.4f".formatted(time.slope() / gas.slope()));
+      }
+    }
+  }
+}
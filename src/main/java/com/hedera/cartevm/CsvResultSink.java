@@ -0,0 +1,124 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Comma separated results, the statistics columns are in nanoseconds. Opcode breakdowns do not
+ * fit the flat rows and are left out. The allocation columns are empty unless measured. Text
+ * fields are quoted per RFC 4180 when they need to be, so catalog step names may hold commas.
+ */
+public class CsvResultSink extends FileResultSink {
+
+  static final String HEADER =
+      "run,index,fork,steps,halt,gas_used,nanos,gas_per_second,setup_nanos,min_nanos,"
+          + "mean_nanos,p90_nanos,p99_nanos,max_nanos,stddev_nanos,ci95_nanos,samples,noisy,revert,"
+          + "allocated_bytes,bytes_per_gas,process_gc_count,process_gc_millis";
+
+  public CsvResultSink(Path file, int flushEvery, boolean append) throws IOException {
+    super(file, flushEvery, append);
+  }
+
+  @Override
+  protected String header() {
+    return HEADER;
+  }
+
+  @Override
+  protected String format(RunResult result) {
+    Statistics time = result.time();
+    Allocation allocation = result.allocation();
+    return String.format(
+        Locale.ROOT,
+        "%d,%d,%s,%s,%s,%d,%d,%.0f,%d,%.0f,%.0f,%.0f,%.0f,%.0f,%.0f,%.0f,%d,%b,%s,%s",
+        result.run(),
+        result.index(),
+        quote(result.fork()),
+        quote(result.name()),
+        quote(result.haltReason()),
+        result.gasUsed(),
+        result.nanos(),
+        result.gasPerSecond(),
+        result.setupNanos(),
+        time.min(),
+        time.mean(),
+        time.p90(),
+        time.p99(),
+        time.max(),
+        time.stddev(),
+        time.confidence95(),
+        time.count(),
+        result.noisy(),
+        quote(result.revert()),
+        allocation == null
+            ? ",,,"
+            : String.format(
+                Locale.ROOT,
+                "%d,%.3f,%d,%d",
+                allocation.allocatedBytes(),
+                allocation.bytesPerGas(result.gasUsed()),
+                allocation.processGcCount(),
+                allocation.processGcMillis()));
+  }
+
+  /** The field as is, or quoted per RFC 4180 if it holds a comma, quote or line break. */
+  static String quote(String field) {
+    if (field == null
+        || field.chars().noneMatch(c -> c == ',' || c == '"' || c == '\n' || c == '\r')) {
+      return field;
+    }
+    return '"' + field.replace("\"", "\"\"") + '"';
+  }
+
+  /** Splits one record into its fields, undoing {@link #quote}. */
+  static List<String> fields(String record) {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < record.length(); i++) {
+      char c = record.charAt(i);
+      if (quoted) {
+        if (c != '"') {
+          field.append(c);
+        } else if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+}
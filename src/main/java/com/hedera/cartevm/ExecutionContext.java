@@ -0,0 +1,80 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import org.hyperledger.besu.evm.EVM;
+import org.hyperledger.besu.evm.frame.MessageFrame;
+import org.hyperledger.besu.evm.gascalculator.GasCalculator;
+import org.hyperledger.besu.evm.precompile.PrecompileContractRegistry;
+import org.hyperledger.besu.evm.processor.ContractCreationProcessor;
+import org.hyperledger.besu.evm.processor.MessageCallProcessor;
+import org.hyperledger.besu.evm.tracing.OperationTracer;
+
+/**
+ * The EVM, precompiles and processors needed to run a message frame. None of it depends on the
+ * program being run, so it is built once per thread and fork and reused for every combination, only
+ * the world and frame are rebuilt per run.
+ */
+public class ExecutionContext {
+
+  private static final ThreadLocal<Map<Fork, ExecutionContext>> perThread =
+      ThreadLocal.withInitial(() -> new EnumMap<>(Fork.class));
+
+  final Fork fork;
+  final GasCalculator gasCalculator;
+  final EVM evm;
+  final PrecompileContractRegistry precompileContractRegistry;
+  final MessageCallProcessor mcp;
+  final ContractCreationProcessor ccp;
+  final long setupNanos;
+
+  public ExecutionContext(Fork fork) {
+    long start = System.nanoTime();
+    this.fork = fork;
+    gasCalculator = fork.gasCalculator();
+    evm = fork.evm(gasCalculator);
+    precompileContractRegistry = new PrecompileContractRegistry();
+    fork.populatePrecompiles(precompileContractRegistry, gasCalculator);
+    mcp = new MessageCallProcessor(evm, precompileContractRegistry);
+    ccp = new ContractCreationProcessor(gasCalculator, evm, true, List.of(), 0);
+    setupNanos = System.nanoTime() - start;
+    LocalRunner.cumulativeSetupNanos.get(fork).add(setupNanos);
+  }
+
+  public static ExecutionContext forCurrentThread(Fork fork) {
+    return perThread.get().computeIfAbsent(fork, ExecutionContext::new);
+  }
+
+  public void process(MessageFrame initialMessageFrame, OperationTracer tracer) {
+    final Deque<MessageFrame> messageFrameStack = initialMessageFrame.getMessageFrameStack();
+    while (!messageFrameStack.isEmpty()) {
+      MessageFrame messageFrame = messageFrameStack.peek();
+      switch (messageFrame.getType()) {
+        case MESSAGE_CALL -> mcp.process(messageFrame, tracer);
+        case CONTRACT_CREATION -> ccp.process(messageFrame, tracer);
+      }
+    }
+  }
+}
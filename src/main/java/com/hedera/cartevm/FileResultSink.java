@@ -0,0 +1,128 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams records to a file, one line each. Lines are buffered and the file is flushed every
+ * {@code flushEvery} records, so a crash loses at most one batch, and synced to disk when the
+ * journal asks for it. When appending to a non-empty file, as when resuming a sweep, no header is
+ * written.
+ */
+public abstract class FileResultSink implements ResultSink {
+
+  private final FileChannel channel;
+  private final BufferedWriter writer;
+  private final int flushEvery;
+  private int pending = 0;
+
+  protected FileResultSink(Path file, int flushEvery, boolean append) throws IOException {
+    boolean continuing = append && Files.exists(file) && Files.size(file) > 0;
+    this.channel =
+        FileChannel.open(
+            file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            continuing ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+    this.writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+    this.flushEvery = flushEvery;
+    String header = header();
+    if (header != null && !continuing) {
+      writer.write(header);
+      writer.newLine();
+    }
+  }
+
+  public static FileResultSink create(Path file, Format format, int flushEvery, boolean append)
+      throws IOException {
+    return switch (format) {
+      case csv -> new CsvResultSink(file, flushEvery, append);
+      case jsonl -> new JsonLinesResultSink(file, flushEvery, append);
+    };
+  }
+
+  protected String header() {
+    return null;
+  }
+
+  protected abstract String format(RunResult result);
+
+  @Override
+  public void accept(RunResult result) {
+    String line = format(result);
+    synchronized (this) {
+      try {
+        writer.write(line);
+        writer.newLine();
+        if (++pending >= flushEvery) {
+          writer.flush();
+          pending = 0;
+        }
+      } catch (IOException ioe) {
+        throw new UncheckedIOException(ioe);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void flush() {
+    try {
+      writer.flush();
+      pending = 0;
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
+  @Override
+  public synchronized void sync() {
+    try {
+      writer.flush();
+      channel.force(false);
+      pending = 0;
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    try {
+      writer.close();
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
+  public enum Format {
+    csv,
+    jsonl
+  }
+}
@@ -108,9 +108,9 @@ public class FillerGenerator extends CodeGenerator {
 
   public void createFiller(File outDir) throws IOException {
     String name = getName();
-    System.out.println(name);
+    System.err.println(name);
     Path outputFile = outDir.toPath().resolve(name + "Filler.yml");
-    System.out.println(outputFile);
+    System.err.println(outputFile);
     Files.writeString(outputFile, generate(template));
   }
 }
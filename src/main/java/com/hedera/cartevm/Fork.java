@@ -0,0 +1,76 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.math.BigInteger;
+import org.hyperledger.besu.evm.EVM;
+import org.hyperledger.besu.evm.MainnetEVMs;
+import org.hyperledger.besu.evm.gascalculator.CancunGasCalculator;
+import org.hyperledger.besu.evm.gascalculator.GasCalculator;
+import org.hyperledger.besu.evm.gascalculator.LondonGasCalculator;
+import org.hyperledger.besu.evm.gascalculator.PragueGasCalculator;
+import org.hyperledger.besu.evm.gascalculator.ShanghaiGasCalculator;
+import org.hyperledger.besu.evm.internal.EvmConfiguration;
+import org.hyperledger.besu.evm.precompile.MainnetPrecompiledContracts;
+import org.hyperledger.besu.evm.precompile.PrecompileContractRegistry;
+
+/**
+ * The forks a combination can be run under, each with its own gas schedule, operations and
+ * precompiles. Programs are compiled once for the oldest of them, so the same bytecode runs on all.
+ */
+public enum Fork {
+  london,
+  paris,
+  shanghai,
+  cancun,
+  prague;
+
+  /** The merge did not change gas costs, so Paris keeps the London schedule. */
+  GasCalculator gasCalculator() {
+    return switch (this) {
+      case london, paris -> new LondonGasCalculator();
+      case shanghai -> new ShanghaiGasCalculator();
+      case cancun -> new CancunGasCalculator();
+      case prague -> new PragueGasCalculator();
+    };
+  }
+
+  EVM evm(GasCalculator gasCalculator) {
+    return switch (this) {
+      case london -> MainnetEVMs.london(gasCalculator, BigInteger.TEN, EvmConfiguration.DEFAULT);
+      case paris -> MainnetEVMs.paris(gasCalculator, BigInteger.TEN, EvmConfiguration.DEFAULT);
+      case shanghai -> MainnetEVMs.shanghai(
+          gasCalculator, BigInteger.TEN, EvmConfiguration.DEFAULT);
+      case cancun -> MainnetEVMs.cancun(gasCalculator, BigInteger.TEN, EvmConfiguration.DEFAULT);
+      case prague -> MainnetEVMs.prague(gasCalculator, BigInteger.TEN, EvmConfiguration.DEFAULT);
+    };
+  }
+
+  /** The Besu release in use has no Prague precompiles yet, so Prague gets those of Cancun. */
+  void populatePrecompiles(PrecompileContractRegistry registry, GasCalculator gasCalculator) {
+    switch (this) {
+      case london, paris, shanghai -> MainnetPrecompiledContracts.populateForIstanbul(
+          registry, gasCalculator);
+      case cancun, prague -> MainnetPrecompiledContracts.populateForCancun(
+          registry, gasCalculator);
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.hyperledger.besu.evm.frame.MessageFrame;
+
+/**
+ * The gas the loop harness and each step actually use, measured on the embedded EVM rather than
+ * taken from the hand computed values in {@link Step} and {@link CodeGenerator}.
+ *
+ * <p>Each program is run with one unrolled iteration looped one, two and three times. The
+ * difference between the later runs is the steady state cost of an iteration, and whatever the
+ * first run used beyond that is one-time overhead, including cold access and memory expansion.
+ */
+public record GasCalibration(
+    long harnessOneTime,
+    long harnessEachLoop,
+    Map<String, StepGas> steps,
+    Map<String, String> failures) {
+
+  record StepGas(long cost, long overhead) {}
+
+  StepGas forStep(Step step) {
+    StepGas gas = steps.get(step.getName());
+    return gas == null ? new StepGas(step.getGasCost(), step.getGasOverhead()) : gas;
+  }
+
+  static GasCalibration measure(List<Step> candidates, long gasLimit, int sizeLimit, Fork fork) {
+    RunSettings settings = RunSettings.DEFAULT.withForks(List.of(fork));
+    long[] harness = loopGas(new LocalRunner(List.of(), gasLimit, sizeLimit, settings));
+    if (harness == null) {
+      throw new IllegalStateException("The empty harness did not complete");
+    }
+    long harnessEachLoop = harness[2] - harness[1];
+    long harnessOneTime = harness[0] - harnessEachLoop;
+
+    Map<String, StepGas> steps = new HashMap<>();
+    Map<String, String> failures = new HashMap<>();
+    for (Step step : candidates) {
+      LocalRunner runner = new LocalRunner(List.of(step), gasLimit, sizeLimit, settings);
+      long[] gas = loopGas(runner);
+      if (gas == null) {
+        failures.put(step.getName(), haltReason(runner.executeOnce(runner.layout(1, 1))));
+        continue;
+      }
+      long cost = gas[2] - gas[1] - harnessEachLoop;
+      long overhead = gas[0] - harnessOneTime - harnessEachLoop - cost;
+      steps.put(step.getName(), new StepGas(cost, overhead));
+    }
+    return new GasCalibration(harnessOneTime, harnessEachLoop, steps, failures);
+  }
+
+  /** Gas used looping once, twice and three times, or null if any run did not complete. */
+  private static long[] loopGas(LocalRunner runner) {
+    long[] gas = new long[3];
+    for (int loops = 1; loops <= gas.length; loops++) {
+      MessageFrame frame = runner.executeOnce(runner.layout(1, loops));
+      if (frame.getState() != MessageFrame.State.COMPLETED_SUCCESS) {
+        return null;
+      }
+      gas[loops - 1] = runner.initialGas() - frame.getRemainingGas();
+    }
+    return gas;
+  }
+
+  private static String haltReason(MessageFrame frame) {
+    return frame
+        .getExceptionalHaltReason()
+        .map(Object::toString)
+        .orElse(frame.getState().toString());
+  }
+
+  /** Print declared against measured values, returning how many steps disagree. */
+  int report(List<Step> candidates, PrintStream out) {
+    int mismatches = 0;
+    out.printf(
+        "harness\tone-time %d (declared %d)\teach loop %d (declared %d)%n",
+        harnessOneTime,
+        CodeGenerator.HARNESS_OVERHEAD_ONE_TIME,
+        harnessEachLoop,
+        CodeGenerator.HARNESS_OVERHEAD_EACH_LOOP);
+    if (harnessOneTime != CodeGenerator.HARNESS_OVERHEAD_ONE_TIME
+        || harnessEachLoop != CodeGenerator.HARNESS_OVERHEAD_EACH_LOOP) {
+      mismatches++;
+    }
+    out.println("step\tcost\tdeclared cost\toverhead\tdeclared overhead\tstatus");
+    for (Step step : candidates) {
+      String failure = failures.get(step.getName());
+      if (failure != null) {
+        out.printf(
+            "%s\t\t%d\t\t%d\t%s%n",
+            step.getName(), step.getGasCost(), step.getGasOverhead(), failure);
+        mismatches++;
+        continue;
+      }
+      StepGas gas = steps.get(step.getName());
+      boolean matches =
+          gas.cost() == step.getGasCost() && gas.overhead() == step.getGasOverhead();
+      out.printf(
+          "%s\t%d\t%d\t%d\t%d\t%s%n",
+          step.getName(),
+          gas.cost(),
+          step.getGasCost(),
+          gas.overhead(),
+          step.getGasOverhead(),
+          matches ? "ok" : "MISMATCH");
+      if (!matches) {
+        mismatches++;
+      }
+    }
+    return mismatches;
+  }
+}
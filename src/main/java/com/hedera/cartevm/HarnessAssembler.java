@@ -0,0 +1,102 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static com.hedera.cartevm.Step.OP_ADD;
+import static com.hedera.cartevm.Step.OP_ISZERO;
+import static com.hedera.cartevm.Step.OP_JUMP;
+import static com.hedera.cartevm.Step.OP_JUMPDEST;
+import static com.hedera.cartevm.Step.OP_JUMPI;
+import static com.hedera.cartevm.Step.OP_LT;
+import static com.hedera.cartevm.Step.OP_POP;
+import static com.hedera.cartevm.Step.OP_SWAP1;
+import static com.hedera.cartevm.Step.push;
+
+import java.util.Locale;
+
+/**
+ * Assembles the {@link CodeGenerator#yulTemplate} harness straight to bytecode. The layout mirrors
+ * what solc emits for the template, so the harness overhead constants in {@link CodeGenerator} hold
+ * for both.
+ *
+ * <pre>
+ *   globalSetup
+ *   PUSH1 0                         let i := 0
+ * loop:
+ *   JUMPDEST
+ *   PUSHn loops DUP2 LT ISZERO      lt(i, loops)
+ *   PUSH2 end JUMPI
+ *   body
+ *   PUSH1 1 DUP2 ADD SWAP1 POP      i := add(i, 1)
+ *   PUSH2 loop JUMP
+ * end:
+ *   JUMPDEST POP
+ *   globalCleanup
+ *   STOP
+ * </pre>
+ */
+public class HarnessAssembler {
+
+  static final String OP_DUP2 = Integer.toHexString(Step.NUM_DUP0 + 2);
+  static final String OP_STOP = "00";
+
+  private HarnessAssembler() {}
+
+  static String assemble(CodeGenerator.Program program) {
+    String loopBound = push(evenHex(program.totalLoops()));
+    String globalSetup = program.globalSetup();
+    String body = program.body();
+
+    // all offsets are in bytes, the code strings are hex so two characters per byte
+    int loopTag = (globalSetup.length() + push("00").length()) / 2;
+    int conditionSize = (OP_JUMPDEST + loopBound + OP_DUP2 + OP_LT + OP_ISZERO).length() / 2;
+    int incrementSize = (push("01") + OP_DUP2 + OP_ADD + OP_SWAP1 + OP_POP).length() / 2;
+    // both jumps are a PUSH2 of the target followed by the jump, four bytes each
+    int endTag = loopTag + conditionSize + 4 + body.length() / 2 + incrementSize + 4;
+    if (endTag > 0xffff) {
+      throw new IllegalStateException(
+          "Harness of " + endTag + " bytes is too big for two byte jump targets");
+    }
+
+    StringBuilder code = new StringBuilder();
+    code.append(globalSetup);
+    code.append(push("00"));
+    code.append(OP_JUMPDEST);
+    code.append(loopBound).append(OP_DUP2).append(OP_LT).append(OP_ISZERO);
+    code.append(push(tag(endTag))).append(OP_JUMPI);
+    code.append(body);
+    code.append(push("01")).append(OP_DUP2).append(OP_ADD).append(OP_SWAP1).append(OP_POP);
+    code.append(push(tag(loopTag))).append(OP_JUMP);
+    code.append(OP_JUMPDEST).append(OP_POP);
+    code.append(program.globalCleanup());
+    code.append(OP_STOP);
+    return code.toString().toLowerCase(Locale.ROOT);
+  }
+
+  static String evenHex(long value) {
+    String hex = Long.toHexString(value);
+    return hex.length() % 2 == 0 ? hex : "0" + hex;
+  }
+
+  static String tag(int offset) {
+    return "%04x".formatted(offset);
+  }
+}
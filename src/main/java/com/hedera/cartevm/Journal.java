@@ -0,0 +1,185 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append only record of the combinations a sweep has completed, so a restarted sweep can skip
+ * them. Combinations are recorded by run and enumeration index, one bit each in memory. Entries are
+ * synced to disk every {@code syncEvery} completions, after the result sink has been synced, so a
+ * journaled combination always has its result on disk.
+ *
+ * <p>The first line names the sweep the indices belong to. A journal is only reopened for the same
+ * sweep, since the same index means a different combination in any other.
+ */
+public class Journal implements Closeable {
+
+  private static final String HEADER = "sweep\t";
+  // indices are split into pages of this many bits, so a sparse journal stays small
+  private static final int PAGE_BITS = 16;
+  private static final long PAGE_MASK = (1L << PAGE_BITS) - 1;
+
+  private final Map<Integer, Map<Long, BitSet>> completed = new HashMap<>();
+  private final FileChannel channel;
+  private final int syncEvery;
+  private final ResultSink sink;
+  private final StringBuilder pending = new StringBuilder();
+  private int pendingCount = 0;
+  private long size = 0;
+
+  public Journal(Path file, String sweep, int syncEvery, ResultSink sink) throws IOException {
+    this.syncEvery = syncEvery;
+    this.sink = sink;
+    this.channel =
+        FileChannel.open(
+            file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      // a crash can leave a torn last line, cut it off so the next entry starts on its own line
+      channel.truncate(completeLength(channel));
+      if (channel.size() == 0) {
+        write(HEADER + sweep + "\n");
+      } else {
+        read(file, sweep);
+      }
+      channel.position(channel.size());
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private void read(Path file, String sweep) throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String header = reader.readLine();
+      if (!(HEADER + sweep).equals(header)) {
+        throw new IOException(
+            "Journal "
+                + file
+                + " was written by a different sweep, resume it with the same step options");
+      }
+      for (String line; (line = reader.readLine()) != null; ) {
+        String[] fields = line.split("\t");
+        try {
+          add(Integer.parseInt(fields[0]), Long.parseLong(fields[1]));
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+          throw new IOException("Not a journal entry in " + file + ": " + line, e);
+        }
+      }
+    }
+  }
+
+  /** The length of the file up to and including its last newline. */
+  private static long completeLength(FileChannel channel) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(4096);
+    long end = channel.size();
+    while (end > 0) {
+      long start = Math.max(0, end - buffer.capacity());
+      buffer.clear().limit((int) (end - start));
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, start + buffer.position()) < 0) {
+          break;
+        }
+      }
+      for (int i = (int) (end - start) - 1; i >= 0; i--) {
+        if (buffer.get(i) == '\n') {
+          return start + i + 1;
+        }
+      }
+      end = start;
+    }
+    return 0;
+  }
+
+  private boolean add(int run, long index) {
+    checkArgument(index >= 0, "Index %s out of range", index);
+    BitSet page =
+        completed
+            .computeIfAbsent(run, r -> new HashMap<>())
+            .computeIfAbsent(index >>> PAGE_BITS, p -> new BitSet());
+    int bit = (int) (index & PAGE_MASK);
+    if (page.get(bit)) {
+      return false;
+    }
+    page.set(bit);
+    size++;
+    return true;
+  }
+
+  public synchronized long size() {
+    return size;
+  }
+
+  public synchronized boolean isCompleted(int run, long index) {
+    BitSet page = completed.getOrDefault(run, Map.of()).get(index >>> PAGE_BITS);
+    return page != null && page.get((int) (index & PAGE_MASK));
+  }
+
+  public synchronized void markCompleted(int run, long index) {
+    if (!add(run, index)) {
+      return;
+    }
+    // held back until the results are synced, so the journal never runs ahead of them
+    pending.append(run).append('\t').append(index).append('\n');
+    if (++pendingCount >= syncEvery) {
+      try {
+        sync();
+      } catch (IOException ioe) {
+        throw new UncheckedIOException(ioe);
+      }
+    }
+  }
+
+  private void sync() throws IOException {
+    sink.sync();
+    write(pending.toString());
+    pending.setLength(0);
+    pendingCount = 0;
+  }
+
+  private void write(String lines) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    channel.force(false);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    sync();
+    channel.close();
+  }
+}
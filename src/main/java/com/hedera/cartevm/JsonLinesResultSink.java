@@ -0,0 +1,87 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * One JSON object per line, with the steps and any opcode breakdown as arrays and any allocation
+ * as an object.
+ */
+public class JsonLinesResultSink extends FileResultSink {
+
+  public JsonLinesResultSink(Path file, int flushEvery, boolean append) throws IOException {
+    super(file, flushEvery, append);
+  }
+
+  @Override
+  protected String format(RunResult result) {
+    JsonArray steps = new JsonArray();
+    result.steps().forEach(steps::add);
+    Statistics time = result.time();
+    JsonObject json = new JsonObject();
+    json.addProperty("run", result.run());
+    json.addProperty("index", result.index());
+    json.addProperty("fork", result.fork());
+    json.add("steps", steps);
+    json.addProperty("halt", result.haltReason());
+    json.addProperty("gasUsed", result.gasUsed());
+    json.addProperty("nanos", result.nanos());
+    json.addProperty("gasPerSecond", result.gasPerSecond());
+    json.addProperty("setupNanos", result.setupNanos());
+    json.addProperty("minNanos", time.min());
+    json.addProperty("meanNanos", time.mean());
+    json.addProperty("p90Nanos", time.p90());
+    json.addProperty("p99Nanos", time.p99());
+    json.addProperty("maxNanos", time.max());
+    json.addProperty("stddevNanos", time.stddev());
+    json.addProperty("ci95Nanos", time.confidence95());
+    json.addProperty("samples", time.count());
+    json.addProperty("noisy", result.noisy());
+    json.addProperty("revert", result.revert());
+    if (result.allocation() != null) {
+      JsonObject allocation = new JsonObject();
+      allocation.addProperty("allocatedBytes", result.allocation().allocatedBytes());
+      allocation.addProperty("bytesPerGas", result.allocation().bytesPerGas(result.gasUsed()));
+      allocation.addProperty("processGcCount", result.allocation().processGcCount());
+      allocation.addProperty("processGcMillis", result.allocation().processGcMillis());
+      json.add("allocation", allocation);
+    }
+    if (result.opcodes() != null) {
+      JsonArray opcodes = new JsonArray();
+      for (OpcodeBreakdown.Entry entry : result.opcodes().entries()) {
+        JsonObject opcode = new JsonObject();
+        opcode.addProperty("opcode", entry.opcode());
+        opcode.addProperty("name", entry.name());
+        opcode.addProperty("count", entry.count());
+        opcode.addProperty("gas", entry.gas());
+        opcode.addProperty("nanos", entry.nanos());
+        opcodes.add(opcode);
+      }
+      json.add("opcodes", opcodes);
+      json.addProperty("tracerOverheadNanos", result.opcodes().tracerOverheadNanos());
+    }
+    return json.toString();
+  }
+}
@@ -0,0 +1,98 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static com.hedera.cartevm.HarnessAssembler.evenHex;
+import static com.hedera.cartevm.OperandSweep.memoryCost;
+import static com.hedera.cartevm.Step.OP_ADD;
+import static com.hedera.cartevm.Step.OP_BALANCE;
+import static com.hedera.cartevm.Step.OP_DUP1;
+import static com.hedera.cartevm.Step.OP_EXTCODEHASH;
+import static com.hedera.cartevm.Step.OP_EXTCODESIZE;
+import static com.hedera.cartevm.Step.OP_GAS;
+import static com.hedera.cartevm.Step.OP_MLOAD;
+import static com.hedera.cartevm.Step.OP_MOD;
+import static com.hedera.cartevm.Step.OP_MSTORE;
+import static com.hedera.cartevm.Step.OP_POP;
+import static com.hedera.cartevm.Step.OP_SLOAD;
+import static com.hedera.cartevm.Step.OP_SSTORE;
+import static com.hedera.cartevm.Step.push;
+
+import com.google.common.io.BaseEncoding;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Steps that read and write the {@link StateStore} at a different, cold, slot or account on each
+ * iteration. The index is kept in memory and advanced by a large odd stride modulo the number of
+ * generated entries, so consecutive accesses land far apart in the store.
+ */
+public class LargeStateSteps {
+
+  static final String GROUP = "large-state";
+  static final String SLOT_INDEX = "03C0";
+  static final String ACCOUNT_INDEX = "03E0";
+  static final String STRIDE = "9E3779B97F4A7C15";
+  // the index arithmetic, and the memory expansion to just past each index paid once
+  static final int INDEX_GAS = 29;
+  static final int SLOT_OVERHEAD = memoryCost(0x3C0 + 32);
+  static final int ACCOUNT_OVERHEAD = memoryCost(0x3E0 + 32);
+
+  private LargeStateSteps() {}
+
+  /** Leaves the next index, below {@code count}, on the stack. */
+  static String nextIndex(String memory, long count) {
+    return push(evenHex(count), memory)
+        + OP_MLOAD
+        + push(STRIDE)
+        + OP_ADD
+        + OP_MOD
+        + OP_DUP1
+        + push(memory)
+        + OP_MSTORE;
+  }
+
+  public static List<Step> steps(long accounts, long slots) {
+    String slot = nextIndex(SLOT_INDEX, slots);
+    String address =
+        nextIndex(ACCOUNT_INDEX, accounts)
+            + push(BaseEncoding.base16().encode(StateStore.address(0).toArrayUnsafe()))
+            + OP_ADD;
+    int accountGas = INDEX_GAS + 6 + 2600 + 2;
+    return List.of(
+        step("sload_random", slot, OP_POP, OP_SLOAD, INDEX_GAS + 2100 + 2, SLOT_OVERHEAD),
+        step("sstore_random", OP_GAS + slot, "", OP_SSTORE, 2 + INDEX_GAS + 5000, SLOT_OVERHEAD),
+        step("balance_random", address, OP_POP, OP_BALANCE, accountGas, ACCOUNT_OVERHEAD),
+        step("extcodesize_random", address, OP_POP, OP_EXTCODESIZE, accountGas, ACCOUNT_OVERHEAD),
+        step("extcodehash_random", address, OP_POP, OP_EXTCODEHASH, accountGas, ACCOUNT_OVERHEAD));
+  }
+
+  private static Step step(
+      String name,
+      String localSetup,
+      String localCleanup,
+      String execution,
+      int gasCost,
+      int gasOverhead) {
+    return new Step(
+        name, "", "", localSetup, localCleanup, execution, gasCost, gasOverhead, Set.of(GROUP));
+  }
+}
@@ -0,0 +1,94 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Work stealing over a directory shared by all hosts. The enumeration is cut into chunks of
+ * {@code chunkSize} consecutive combinations, and a host runs a chunk only if it is the first to
+ * create its lease file. Faster hosts simply claim more chunks.
+ *
+ * <p>A lease names its owner, and an owner always re-claims its own leases, so a host restarted
+ * with its journal finishes the chunks it had started. Deleting the leases of a host that is gone
+ * for good releases its chunks to the others.
+ */
+public class LeasePartition implements Partition {
+
+  private final Path directory;
+  private final long chunkSize;
+  private final String owner;
+  private int currentRun = -1;
+  private long currentChunk = -1;
+  private boolean currentClaimed = false;
+
+  public LeasePartition(Path directory, long chunkSize, String owner) throws IOException {
+    this.directory = directory;
+    this.chunkSize = chunkSize;
+    this.owner = owner;
+    Files.createDirectories(directory);
+  }
+
+  @Override
+  public boolean claims(int run, long index) {
+    long chunk = index / chunkSize;
+    if (run != currentRun || chunk != currentChunk) {
+      currentRun = run;
+      currentChunk = chunk;
+      currentClaimed = tryClaim(run, chunk);
+    }
+    return currentClaimed;
+  }
+
+  boolean tryClaim(int run, long chunk) {
+    Path lease = directory.resolve("run%d-chunk%d.lease".formatted(run, chunk));
+    Path temp = null;
+    try {
+      // the lease appears with its owner already in it, a crash never leaves an empty one, and
+      // linking fails if the lease exists, so exactly one host wins the chunk
+      temp = Files.createTempFile(directory, "lease", ".tmp");
+      Files.writeString(temp, owner, StandardCharsets.UTF_8);
+      Files.createLink(lease, temp);
+      return true;
+    } catch (FileAlreadyExistsException e) {
+      try {
+        return owner.equals(Files.readString(lease, StandardCharsets.UTF_8));
+      } catch (IOException ioe) {
+        return false;
+      }
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    } finally {
+      if (temp != null) {
+        try {
+          Files.deleteIfExists(temp);
+        } catch (IOException ioe) {
+          System.err.println("Could not delete " + temp + ": " + ioe.getMessage());
+        }
+      }
+    }
+  }
+}
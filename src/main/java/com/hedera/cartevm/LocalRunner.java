@@ -24,31 +24,24 @@ import static com.hedera.cartevm.Step.RETURN_CONTRACT_ADDRESS;
 import static com.hedera.cartevm.Step.REVERT_CONTRACT_ADDRESS;
 
 import com.google.common.base.Stopwatch;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMultimap;
 import java.math.BigInteger;
-import java.util.Deque;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.tuweni.bytes.Bytes;
 import org.apache.tuweni.units.bigints.UInt256;
 import org.hyperledger.besu.datatypes.Address;
 import org.hyperledger.besu.datatypes.Wei;
-import org.hyperledger.besu.evm.EVM;
-import org.hyperledger.besu.evm.MainnetEVMs;
 import org.hyperledger.besu.evm.account.MutableAccount;
 import org.hyperledger.besu.evm.code.CodeFactory;
 import org.hyperledger.besu.evm.fluent.SimpleBlockValues;
 import org.hyperledger.besu.evm.fluent.SimpleWorld;
 import org.hyperledger.besu.evm.frame.MessageFrame;
-import org.hyperledger.besu.evm.gascalculator.GasCalculator;
-import org.hyperledger.besu.evm.gascalculator.LondonGasCalculator;
-import org.hyperledger.besu.evm.internal.EvmConfiguration;
-import org.hyperledger.besu.evm.precompile.MainnetPrecompiledContracts;
-import org.hyperledger.besu.evm.precompile.PrecompileContractRegistry;
-import org.hyperledger.besu.evm.processor.ContractCreationProcessor;
-import org.hyperledger.besu.evm.processor.MessageCallProcessor;
 import org.hyperledger.besu.evm.tracing.OperationTracer;
 import org.hyperledger.besu.evm.worldstate.WorldUpdater;
 
@@ -56,20 +49,61 @@ public class LocalRunner extends CodeGenerator {
 
   static final Address SENDER = Address.fromHexString("12345678");
   static final Address RECEIVER = Address.fromHexString("9abcdef0");
-  final LoadingCache<String, String> bytecodeCache =
-      CacheBuilder.newBuilder().initialCapacity(30_000).build(CacheLoader.from(this::compileYul));
-  static long cumulativeGas = 0L;
-  static long cumulativeNanos = 0L;
+  static final Map<Fork, LongAdder> cumulativeGas = perFork();
+  static final Map<Fork, LongAdder> cumulativeNanos = perFork();
+  static final Map<Fork, LongAdder> cumulativeSetupNanos = perFork();
+
+  final RunSettings settings;
+
+  private static Map<Fork, LongAdder> perFork() {
+    Map<Fork, LongAdder> adders = new EnumMap<>(Fork.class);
+    for (Fork fork : Fork.values()) {
+      adders.put(fork, new LongAdder());
+    }
+    return adders;
+  }
 
   public LocalRunner(List<Step> steps, long gasLimit, int sizeLimit) {
+    this(steps, gasLimit, sizeLimit, RunSettings.DEFAULT);
+  }
+
+  public LocalRunner(List<Step> steps, long gasLimit, int sizeLimit, RunSettings settings) {
     super(steps, gasLimit, sizeLimit);
+    this.settings = settings;
   }
 
-  public void prexistingState(WorldUpdater worldUpdater, Bytes codeBytes) {
+  private static boolean coldSteps = false;
+
+  /**
+   * The state every program runs against, except for the code of the receiver. It is built once
+   * and only ever read, each run gets a copy on write overlay of it, so it can be shared by all
+   * combinations and threads.
+   */
+  static SimpleWorld baseWorld = createBaseWorld();
+
+  private static SimpleWorld createBaseWorld() {
+    SimpleWorld world = new SimpleWorld();
+    prexistingState(world);
+    return world;
+  }
+
+  /** Create the accounts and slots the {@link ColdSteps} touch, before any run starts. */
+  public static void useColdSteps() {
+    coldSteps = true;
+    ColdSteps.prexistingState(baseWorld, baseWorld.getOrCreate(RECEIVER));
+  }
+
+  /** Run against the accounts and receiver storage of this store, before any run starts. */
+  public static void useStateStore(StateStore store) {
+    SimpleWorld world = new MappedWorld(store, RECEIVER);
+    prexistingState(world);
+    baseWorld = world;
+  }
+
+  public static void prexistingState(WorldUpdater worldUpdater) {
     worldUpdater.getOrCreate(SENDER).setBalance(Wei.of(BigInteger.TWO.pow(20)));
 
     MutableAccount receiver = worldUpdater.getOrCreate(RECEIVER);
-    receiver.setCode(codeBytes);
     // for sload
     receiver.setStorageValue(UInt256.fromHexString("54"), UInt256.fromHexString("99"));
 
@@ -85,94 +119,227 @@ public class LocalRunner extends CodeGenerator {
     revert.setBalance(Wei.fromHexString("0x0ba1a9ce0ba1a9ce"));
     // for REVERT
     revert.setCode(Bytes.fromHexString("0x6055605555604360a052600160a0FD"));
+
+    if (coldSteps) {
+      ColdSteps.prexistingState(worldUpdater, receiver);
+    }
+  }
+
+  long initialGas() {
+    return gasLimit * 300;
+  }
+
+  public MessageFrame createInitialFrame(Bytes codeBytes) {
+    // writes, including the frame's commit, land in the overlay and never reach the base
+    WorldUpdater worldUpdater = baseWorld.updater();
+    worldUpdater.getOrCreate(RECEIVER).setCode(codeBytes);
+
+    return MessageFrame.builder()
+        .type(MessageFrame.Type.MESSAGE_CALL)
+        .worldUpdater(worldUpdater.updater())
+        .initialGas(initialGas())
+        .contract(Address.ZERO)
+        .address(RECEIVER)
+        .originator(SENDER)
+        .sender(SENDER)
+        .gasPrice(Wei.ZERO)
+        .inputData(
+            Bytes.fromHexString(
+                "a9059cbb"
+                    + "0000000000000000000000004bbeeb066ed09b7aed07bf39eee0460dfa261520"
+                    + "00000000000000000000000000000000000000000000000002a34892d36d6c74"))
+        .value(Wei.ZERO)
+        .apparentValue(Wei.ZERO)
+        .accessListWarmAddresses(settings.prewarm() ? ColdSteps.WARM_ADDRESSES : Set.of())
+        .accessListWarmStorage(
+            settings.prewarm() ? ColdSteps.WARM_STORAGE : ImmutableMultimap.of())
+        .code(CodeFactory.createCode(codeBytes, 1, false))
+        .blockValues(new SimpleBlockValues())
+        .completer(c -> {})
+        .miningBeneficiary(Address.ZERO)
+        .blockHashLookup(h -> null)
+        .build();
   }
 
-  public void execute(boolean verbose) {
-    String yul = generate(yulTemplate);
-    String bytecode = bytecodeCache.getUnchecked(yul);
-    Bytes codeBytes = Bytes.fromHexString(bytecode);
+  record Measurement(
+      Fork fork,
+      Bytes codeBytes,
+      MessageFrame initialMessageFrame,
+      long gasUsed,
+      long[] nanos,
+      double[] gasPerSecond,
+      long setupNanos,
+      Allocation allocation) {}
 
-    WorldUpdater worldUpdater = new SimpleWorld();
-    prexistingState(worldUpdater, codeBytes);
+  /** Compile once, then measure the same bytecode under each fork. */
+  List<Measurement> measure() {
+    final Stopwatch compileStopwatch = Stopwatch.createStarted();
+    Bytes codeBytes = Bytes.fromHexString(bytecode());
+    long compileNanos = compileStopwatch.elapsed(TimeUnit.NANOSECONDS);
+    return settings.forks().stream()
+        .map(fork -> measure(ExecutionContext.forCurrentThread(fork), codeBytes, compileNanos))
+        .toList();
+  }
+
+  Measurement measure(ExecutionContext context, Bytes codeBytes, long compileNanos) {
+    final Stopwatch setupStopwatch = Stopwatch.createUnstarted();
+    final long initialGas = initialGas();
+
+    // warmup runs are neither timed nor reported
+    for (int i = 0; i < settings.warmup(); i++) {
+      context.process(createInitialFrame(codeBytes), OperationTracer.NO_TRACING);
+    }
 
-    // final EVM evm = MainnetEvms.london();
-    GasCalculator londonGasCalculator = new LondonGasCalculator();
-    final EVM evm =
-        MainnetEVMs.london(londonGasCalculator, BigInteger.TEN, EvmConfiguration.DEFAULT);
-    final PrecompileContractRegistry precompileContractRegistry = new PrecompileContractRegistry();
-    MainnetPrecompiledContracts.populateForIstanbul(
-        precompileContractRegistry, londonGasCalculator);
     final Stopwatch stopwatch = Stopwatch.createUnstarted();
-    final long initialGas = gasLimit * 300;
-    MessageFrame initialMessageFrame =
-        MessageFrame.builder()
-            .type(MessageFrame.Type.MESSAGE_CALL)
-            .worldUpdater(worldUpdater.updater())
-            .initialGas(initialGas)
-            .contract(Address.ZERO)
-            .address(RECEIVER)
-            .originator(SENDER)
-            .sender(SENDER)
-            .gasPrice(Wei.ZERO)
-            .inputData(
-                Bytes.fromHexString(
-                    "a9059cbb"
-                        + "0000000000000000000000004bbeeb066ed09b7aed07bf39eee0460dfa261520"
-                        + "00000000000000000000000000000000000000000000000002a34892d36d6c74"))
-            .value(Wei.ZERO)
-            .apparentValue(Wei.ZERO)
-            .code(CodeFactory.createCode(codeBytes, 1, false))
-            .blockValues(new SimpleBlockValues())
-            .completer(c -> {})
-            .miningBeneficiary(Address.ZERO)
-            .blockHashLookup(h -> null)
-            .build();
-    final Deque<MessageFrame> messageFrameStack = initialMessageFrame.getMessageFrameStack();
-
-    final MessageCallProcessor mcp = new MessageCallProcessor(evm, precompileContractRegistry);
-    final ContractCreationProcessor ccp =
-        new ContractCreationProcessor(londonGasCalculator, evm, true, List.of(), 0);
-    stopwatch.start();
-    OperationTracer tracer = OperationTracer.NO_TRACING;
-    while (!messageFrameStack.isEmpty()) {
-      MessageFrame messageFrame = messageFrameStack.peek();
-      switch (messageFrame.getType()) {
-        case MESSAGE_CALL -> mcp.process(messageFrame, tracer);
-        case CONTRACT_CREATION -> ccp.process(messageFrame, tracer);
+    long[] nanos = new long[settings.iterations()];
+    double[] gasPerSecond = new double[settings.iterations()];
+    MessageFrame initialMessageFrame = null;
+    long gasUsed = 0;
+    final boolean measureAllocation = settings.measureAllocation() && Allocation.supported();
+    long allocatedBytes = 0;
+    final long gcCount = measureAllocation ? Allocation.totalGcCount() : 0;
+    final long gcMillis = measureAllocation ? Allocation.totalGcMillis() : 0;
+    for (int i = 0; i < nanos.length; i++) {
+      setupStopwatch.start();
+      initialMessageFrame = createInitialFrame(codeBytes);
+      setupStopwatch.stop();
+
+      // the counter is read outside the timed region
+      long allocatedBefore = measureAllocation ? Allocation.threadAllocatedBytes() : 0;
+      stopwatch.reset().start();
+      context.process(initialMessageFrame, OperationTracer.NO_TRACING);
+      stopwatch.stop();
+      if (measureAllocation) {
+        allocatedBytes += Allocation.threadAllocatedBytes() - allocatedBefore;
       }
+      nanos[i] = stopwatch.elapsed(TimeUnit.NANOSECONDS);
+      gasUsed = initialGas - initialMessageFrame.getRemainingGas();
+      gasPerSecond[i] = gasUsed * 1_000_000_000.0 / nanos[i];
     }
-    stopwatch.stop();
-    initialMessageFrame.getRevertReason().ifPresent(b -> System.out.println("Reverted - " + b));
-    long gasUsed = initialGas - initialMessageFrame.getRemainingGas();
-    long timeElapsedNanos = stopwatch.elapsed(TimeUnit.NANOSECONDS);
-    cumulativeGas += gasUsed;
-    cumulativeNanos += timeElapsedNanos;
+    return new Measurement(
+        context.fork,
+        codeBytes,
+        initialMessageFrame,
+        gasUsed,
+        nanos,
+        gasPerSecond,
+        compileNanos + setupStopwatch.elapsed(TimeUnit.NANOSECONDS),
+        measureAllocation
+            ? new Allocation(
+                allocatedBytes / nanos.length,
+                Allocation.totalGcCount() - gcCount,
+                Allocation.totalGcMillis() - gcMillis)
+            : null);
+  }
+
+  /**
+   * Measure without reporting, as used to decide whether to explore a prefix further. Only the
+   * first fork is measured, and a program that does not complete measures as NaN.
+   */
+  public double measureGasPerSecond() {
+    Bytes codeBytes = Bytes.fromHexString(bytecode());
+    Measurement measurement =
+        measure(ExecutionContext.forCurrentThread(settings.forks().get(0)), codeBytes, 0);
+    // a halted program burns all the frame gas at once and would look extremely fast
+    if (measurement.initialMessageFrame().getState() != MessageFrame.State.COMPLETED_SUCCESS) {
+      return Double.NaN;
+    }
+    return measurement.gasUsed() * 1_000_000_000.0 / Statistics.of(measurement.nanos()).median();
+  }
+
+  /** Run the given layout once, untimed, under the first fork, as the gas calibration does. */
+  MessageFrame executeOnce(Program program) {
+    MessageFrame frame = createInitialFrame(Bytes.fromHexString(bytecode(program)));
+    ExecutionContext.forCurrentThread(settings.forks().get(0))
+        .process(frame, OperationTracer.NO_TRACING);
+    return frame;
+  }
+
+  /**
+   * Measure and report under each fork, returning the gas per second under the first fork, or NaN
+   * if the program did not complete there.
+   */
+  public double execute(long index, boolean verbose) {
+    List<Measurement> measurements = measure();
+    for (Measurement measurement : measurements) {
+      report(index, verbose, measurement);
+    }
+    Measurement first = measurements.get(0);
+    if (first.initialMessageFrame().getState() != MessageFrame.State.COMPLETED_SUCCESS) {
+      return Double.NaN;
+    }
+    return first.gasUsed() * 1_000_000_000.0 / Statistics.of(first.nanos()).median();
+  }
+
+  private void report(long index, boolean verbose, Measurement measurement) {
+    final ExecutionContext context = ExecutionContext.forCurrentThread(measurement.fork());
+    MessageFrame initialMessageFrame = measurement.initialMessageFrame();
+    long gasUsed = measurement.gasUsed();
+    initialMessageFrame.getRevertReason().ifPresent(b -> System.err.println("Reverted - " + b));
+    Statistics time = Statistics.of(measurement.nanos());
+    long setupNanos = measurement.setupNanos();
+    cumulativeGas.get(context.fork).add(gasUsed);
+    cumulativeNanos.get(context.fork).add((long) time.median());
+    cumulativeSetupNanos.get(context.fork).add(setupNanos);
     if (verbose) {
-      System.out.printf(
-          "%s\t%s\t%,d\t%,.3f\t%,.0f\t%s%n",
-          getName().replace("__", "\t"),
+      OpcodeBreakdown opcodes = null;
+      if (settings.traceSample() > 0) {
+        // a separate run, so the tracer never disturbs the measured ones
+        OpcodeTimingTracer tracer = new OpcodeTimingTracer(settings.traceSample());
+        MessageFrame tracedFrame = createInitialFrame(measurement.codeBytes());
+        long start = System.nanoTime();
+        context.process(tracedFrame, tracer);
+        opcodes = tracer.breakdown(System.nanoTime() - start, (long) time.median());
+      }
+      String haltReason =
           initialMessageFrame
               .getExceptionalHaltReason()
               .map(Object::toString)
-              .orElse(initialMessageFrame.getState().toString()),
-          gasUsed,
-          timeElapsedNanos / 1000.0,
-          gasUsed * 1_000_000_000.0 / timeElapsedNanos,
-          initialMessageFrame.getRevertReason().orElse(Bytes.EMPTY).toUnprefixedHexString());
+              .orElse(initialMessageFrame.getState().toString());
+      String revert =
+          initialMessageFrame.getRevertReason().orElse(Bytes.EMPTY).toUnprefixedHexString();
+      settings
+          .sink()
+          .accept(
+              new RunResult(
+                  settings.run(),
+                  index,
+                  context.fork.name(),
+                  steps.stream().map(Step::getName).toList(),
+                  haltReason,
+                  gasUsed,
+                  setupNanos,
+                  time,
+                  Statistics.of(measurement.gasPerSecond()),
+                  time.variation() > settings.maxVariation(),
+                  revert,
+                  opcodes,
+                  measurement.allocation()));
     }
   }
 
   public static void resetCumulative() {
-    cumulativeGas = 0L;
-    cumulativeNanos = 0L;
+    for (Fork fork : Fork.values()) {
+      cumulativeGas.get(fork).reset();
+      cumulativeNanos.get(fork).reset();
+      cumulativeSetupNanos.get(fork).reset();
+    }
   }
 
+  /** One row per fork that ran, labelled with the fork when more than one did. */
   public static void reportCumulative() {
-    System.out.printf(
-        "%s\t\t%,d\t%,.3f\t%,.0f\t%n",
-        "cumulative",
-        cumulativeGas,
-        cumulativeNanos / 1000.0,
-        cumulativeGas * 1_000_000_000.0 / cumulativeNanos);
+    List<Fork> forks =
+        Arrays.stream(Fork.values()).filter(f -> cumulativeGas.get(f).sum() > 0).toList();
+    for (Fork fork : forks) {
+      long cumulativeGas = LocalRunner.cumulativeGas.get(fork).sum();
+      long cumulativeNanos = LocalRunner.cumulativeNanos.get(fork).sum();
+      System.out.printf(
+          "%s\t\t%,d\t%,.3f\t%,.0f\t%,.3f\t%n",
+          forks.size() > 1 ? "cumulative " + fork : "cumulative",
+          cumulativeGas,
+          cumulativeNanos / 1000.0,
+          cumulativeGas * 1_000_000_000.0 / cumulativeNanos,
+          cumulativeSetupNanos.get(fork).sum() / 1000.0);
+    }
   }
 }
@@ -0,0 +1,100 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.tuweni.units.bigints.UInt256;
+import org.hyperledger.besu.datatypes.Address;
+import org.hyperledger.besu.datatypes.Wei;
+import org.hyperledger.besu.evm.account.Account;
+import org.hyperledger.besu.evm.account.MutableAccount;
+import org.hyperledger.besu.evm.fluent.SimpleAccount;
+import org.hyperledger.besu.evm.fluent.SimpleWorld;
+
+/**
+ * A world whose accounts, and the storage of one contract, fall back to a {@link StateStore}. Only
+ * the accounts that are written to are kept in memory, everything else is read from the store when
+ * the EVM asks for it.
+ */
+public class MappedWorld extends SimpleWorld {
+
+  private final StateStore store;
+  private final Address storageAddress;
+  private final StorageAccount storageAccount;
+
+  public MappedWorld(StateStore store, Address storageAddress) {
+    this.store = store;
+    this.storageAddress = storageAddress;
+    this.storageAccount = new StorageAccount(storageAddress, store);
+  }
+
+  @Override
+  public Account get(Address address) {
+    if (storageAddress.equals(address)) {
+      return storageAccount;
+    }
+    Account account = super.get(address);
+    return account != null ? account : store.account(address);
+  }
+
+  @Override
+  public MutableAccount getAccount(Address address) {
+    if (storageAddress.equals(address)) {
+      return storageAccount;
+    }
+    MutableAccount account = super.getAccount(address);
+    return account != null ? account : store.account(address);
+  }
+
+  /**
+   * An account whose storage slots read through to the generated ones until they are written. The
+   * written values are kept apart, since zero is a value a generated slot can be cleared to.
+   */
+  static class StorageAccount extends SimpleAccount {
+
+    private final StateStore store;
+    private final Map<UInt256, UInt256> written = new HashMap<>();
+
+    StorageAccount(Address address, StateStore store) {
+      super(address, 0, Wei.ZERO);
+      this.store = store;
+    }
+
+    @Override
+    public void setStorageValue(UInt256 key, UInt256 value) {
+      super.setStorageValue(key, value);
+      written.put(key, value);
+    }
+
+    @Override
+    public UInt256 getStorageValue(UInt256 key) {
+      UInt256 value = written.get(key);
+      return value != null ? value : store.slot(key);
+    }
+
+    /** The generated value, which is what the slot held before this transaction. */
+    @Override
+    public UInt256 getOriginalStorageValue(UInt256 key) {
+      return store.slot(key);
+    }
+  }
+}
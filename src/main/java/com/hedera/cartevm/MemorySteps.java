@@ -0,0 +1,125 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.hedera.cartevm.HarnessAssembler.evenHex;
+import static com.hedera.cartevm.OperandSweep.memoryCost;
+import static com.hedera.cartevm.OperandSweep.sized;
+import static com.hedera.cartevm.Step.OP_ADD;
+import static com.hedera.cartevm.Step.OP_MCOPY;
+import static com.hedera.cartevm.Step.OP_MLOAD;
+import static com.hedera.cartevm.Step.OP_MOD;
+import static com.hedera.cartevm.Step.OP_MSIZE;
+import static com.hedera.cartevm.Step.OP_MSTORE;
+import static com.hedera.cartevm.Step.OP_POP;
+import static com.hedera.cartevm.Step.OP_SUB;
+import static com.hedera.cartevm.Step.push;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Steps that work on a large memory, one family per access pattern with a step per memory size.
+ * {@code mload_mem}, {@code mstore_mem} and {@code mcopy_mem} expand memory to the full size in
+ * their global setup and then touch its top word, or copy its lower half to its upper half. {@code
+ * mgrow} expands memory inside the loop instead, storing at {@code 0x400 + (MSIZE - 0x400) % size}
+ * so memory grows by a word every iteration until it covers the size and then stays put.
+ *
+ * <p>Everything is at or above 0x400, clear of the fixed reservations in {@link Step}. MCOPY only
+ * exists from Cancun on, and halts on earlier forks.
+ */
+public class MemorySteps {
+
+  static final String GROUP = "memory";
+  static final int LOW_MEMORY = 0x400;
+
+  private MemorySteps() {}
+
+  /** The steps that can complete under at least one of the forks. */
+  public static List<Step> steps(List<Integer> sizes, List<Fork> forks) {
+    if (forks.stream().anyMatch(fork -> fork.compareTo(Fork.cancun) >= 0)) {
+      return steps(sizes);
+    }
+    return steps(sizes).stream().filter(step -> !step.getName().startsWith("mcopy_mem_")).toList();
+  }
+
+  public static List<Step> steps(List<Integer> sizes) {
+    List<Step> steps = new ArrayList<>();
+    for (int size : sizes) {
+      checkArgument(
+          size >= 2 * LOW_MEMORY && size % 32 == 0,
+          "Memory sizes must be multiples of 32 from %s, not %s",
+          2 * LOW_MEMORY,
+          size);
+      String top = evenHex(size - 32);
+      String half = evenHex(size / 2);
+      // the expansion and its three instructions are paid once, in the global setup
+      String expand = push("00", top) + OP_MSTORE;
+      int expandGas = 9 + memoryCost(size);
+      steps.add(
+          sized(GROUP, "mload_mem", size, expand, "", push(top), OP_POP, OP_MLOAD, 8, expandGas));
+      steps.add(
+          sized(
+              GROUP,
+              "mstore_mem",
+              size,
+              expand,
+              "",
+              push("8765", top),
+              "",
+              OP_MSTORE,
+              9,
+              expandGas));
+      steps.add(
+          sized(
+              GROUP,
+              "mcopy_mem",
+              size,
+              expand,
+              "",
+              push(half, "00", half),
+              "",
+              OP_MCOPY,
+              12 + 3 * ((size / 2 + 31) / 32),
+              expandGas));
+      // the global setup only reads below 0x400, so memory starts just under the grown area
+      steps.add(
+          sized(
+              GROUP,
+              "mgrow",
+              size,
+              push(evenHex(LOW_MEMORY - 32)) + OP_MLOAD + OP_POP,
+              "",
+              push("8765", evenHex(LOW_MEMORY), evenHex(size), evenHex(LOW_MEMORY))
+                  + OP_MSIZE
+                  + OP_SUB
+                  + OP_MOD
+                  + OP_ADD,
+              "",
+              OP_MSTORE,
+              28,
+              8 + memoryCost(LOW_MEMORY + size)));
+    }
+    return Collections.unmodifiableList(steps);
+  }
+}
@@ -0,0 +1,145 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Passes results on to another sink while keeping the combinations of the last run that take the
+ * most time per unit of gas, the candidates for mispriced operations.
+ *
+ * <p>Only the worst {@code limit} results are held, in a heap whose head is the best of them. The
+ * median throughput of all results is approximated from a histogram with 1% wide buckets, so
+ * memory stays bounded however large the sweep.
+ */
+public class MispricingRanking implements ResultSink {
+
+  private static final double BUCKET_WIDTH = Math.log(1.01);
+
+  private final ResultSink delegate;
+  private final int limit;
+  private final PriorityQueue<RunResult> worst =
+      new PriorityQueue<>(Comparator.comparingDouble(MispricingRanking::nanosPerGas));
+  private final Map<String, TreeMap<Integer, Long>> throughputHistograms = new HashMap<>();
+  private final Map<Fork, Double> nothingNanosPerGas = new EnumMap<>(Fork.class);
+  private long count;
+
+  public MispricingRanking(ResultSink delegate, int limit) {
+    this.delegate = delegate;
+    this.limit = limit;
+  }
+
+  /** The time per gas of the empty loop harness, what every combination is normalised against. */
+  public synchronized void setNothingNanosPerGas(Fork fork, double nanosPerGas) {
+    nothingNanosPerGas.put(fork, nanosPerGas);
+  }
+
+  static double nanosPerGas(RunResult result) {
+    return result.gasUsed() == 0 ? 0 : (double) result.nanos() / result.gasUsed();
+  }
+
+  @Override
+  public void accept(RunResult result) {
+    delegate.accept(result);
+    if (result.run() != 1 || result.gasUsed() == 0) {
+      return;
+    }
+    synchronized (this) {
+      count++;
+      int bucket = (int) Math.floor(Math.log(result.gasPerSecond()) / BUCKET_WIDTH);
+      throughputHistograms
+          .computeIfAbsent(result.fork(), k -> new TreeMap<>())
+          .merge(bucket, 1L, Long::sum);
+      if (worst.size() < limit) {
+        worst.add(result);
+      } else if (nanosPerGas(result) > nanosPerGas(worst.peek())) {
+        worst.poll();
+        worst.add(result);
+      }
+    }
+  }
+
+  @Override
+  public void flush() {
+    delegate.flush();
+  }
+
+  @Override
+  public void sync() {
+    delegate.sync();
+  }
+
+  @Override
+  public void close() {
+    delegate.close();
+  }
+
+  /** The approximate median gas per second of all results of a fork, the middle of its bucket. */
+  synchronized double medianGasPerSecond(String fork) {
+    TreeMap<Integer, Long> histogram = throughputHistograms.get(fork);
+    if (histogram == null) {
+      return Double.NaN;
+    }
+    long total = histogram.values().stream().mapToLong(Long::longValue).sum();
+    long seen = 0;
+    for (Map.Entry<Integer, Long> bucket : histogram.entrySet()) {
+      seen += bucket.getValue();
+      if (seen * 2 >= total) {
+        return Math.exp((bucket.getKey() + 0.5) * BUCKET_WIDTH);
+      }
+    }
+    throw new IllegalStateException("Empty histogram");
+  }
+
+  /** The ranked results, worst first. */
+  synchronized List<RunResult> ranking() {
+    List<RunResult> ranking = new ArrayList<>(worst);
+    ranking.sort(Comparator.comparingDouble(MispricingRanking::nanosPerGas).reversed());
+    return ranking;
+  }
+
+  public synchronized void report(PrintStream out) {
+    out.printf(
+        "Worst %,d of %,d combinations by time per gas%n", Math.min(limit, count), count);
+    out.println("rank\tfork\tsteps\tgas\tns/gas\tx nothing\tx median");
+    int rank = 1;
+    for (RunResult result : ranking()) {
+      Double nothing = nothingNanosPerGas.get(Fork.valueOf(result.fork()));
+      out.printf(
+          "%d\t%s\t%s\t%,d\t%.3f\t%s\t%.2f%n",
+          rank++,
+          result.fork(),
+          result.name(),
+          result.gasUsed(),
+          nanosPerGas(result),
+          nothing == null ? "" : "%.2f".formatted(nanosPerGas(result) / nothing),
+          medianGasPerSecond(result.fork()) / result.gasPerSecond());
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.util.List;
+
+/**
+ * Where the time and gas of one traced run went, per opcode.
+ *
+ * @param tracedNanos wall time of the traced run
+ * @param untracedNanos median wall time of the measured runs, the per opcode times add up to this
+ * @param sampleEvery one in how many operations was timed
+ */
+public record OpcodeBreakdown(
+    List<Entry> entries, long tracedNanos, long untracedNanos, int sampleEvery) {
+
+  /**
+   * @param nanos estimated wall time of all executions of this opcode, tracer overhead removed
+   */
+  public record Entry(int opcode, String name, long count, long gas, double nanos) {}
+
+  public long tracerOverheadNanos() {
+    return tracedNanos - untracedNanos;
+  }
+}
@@ -0,0 +1,139 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.hyperledger.besu.evm.frame.MessageFrame;
+import org.hyperledger.besu.evm.operation.Operation;
+import org.hyperledger.besu.evm.tracing.OperationTracer;
+
+/**
+ * Attributes gas and wall time to opcodes. Gas and counts are kept for every operation, but only
+ * one in {@code sampleEvery} operations is timed, so the cost of reading the clock stays small. The
+ * gap between samples is random, averaging {@code sampleEvery}, so a loop body whose length shares
+ * a factor with it cannot hide some of its opcodes from sampling. The measured cost of an empty
+ * timing window is subtracted from every sample.
+ */
+public class OpcodeTimingTracer implements OperationTracer {
+
+  private static final long TIMER_OVERHEAD = calibrateTimerOverhead();
+
+  private final int sampleEvery;
+  private final long[] counts = new long[256];
+  private final long[] gas = new long[256];
+  private final long[] sampledCounts = new long[256];
+  private final long[] sampledNanos = new long[256];
+  private final String[] names = new String[256];
+  private final SplittableRandom random;
+  private long untilSample;
+  private boolean sampling = false;
+  private long sampleStart;
+
+  public OpcodeTimingTracer(int sampleEvery) {
+    this(sampleEvery, new SplittableRandom());
+  }
+
+  OpcodeTimingTracer(int sampleEvery, SplittableRandom random) {
+    this.sampleEvery = sampleEvery;
+    this.random = random;
+    this.untilSample = nextGap();
+  }
+
+  /** Uniform from 1 to {@code 2 * sampleEvery - 1}, so the mean gap is {@code sampleEvery}. */
+  private long nextGap() {
+    return 1 + random.nextInt(2 * sampleEvery - 1);
+  }
+
+  /** Counts an operation, true if it is one to time. */
+  boolean isSampled() {
+    if (--untilSample > 0) {
+      return false;
+    }
+    untilSample = nextGap();
+    return true;
+  }
+
+  static long calibrateTimerOverhead() {
+    long[] windows = new long[10_001];
+    for (int i = 0; i < windows.length; i++) {
+      long start = System.nanoTime();
+      windows[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(windows);
+    return windows[windows.length / 2];
+  }
+
+  @Override
+  public void tracePreExecution(MessageFrame frame) {
+    if (isSampled()) {
+      sampling = true;
+      // read the clock last so the bookkeeping above is not part of the sample
+      sampleStart = System.nanoTime();
+    }
+  }
+
+  @Override
+  public void tracePostExecution(MessageFrame frame, Operation.OperationResult operationResult) {
+    long now = sampling ? System.nanoTime() : 0;
+    Operation operation = frame.getCurrentOperation();
+    int opcode = operation.getOpcode() & 0xff;
+    counts[opcode]++;
+    gas[opcode] += operationResult.getGasCost();
+    if (names[opcode] == null) {
+      names[opcode] = operation.getName();
+    }
+    if (sampling) {
+      sampledNanos[opcode] += Math.max(0, now - sampleStart - TIMER_OVERHEAD);
+      sampledCounts[opcode]++;
+      sampling = false;
+    }
+  }
+
+  /**
+   * Scales the sampled opcode times up to all executions and then to the untraced run time, so
+   * what remains of the tracer overhead is spread proportionally rather than reported as EVM time.
+   */
+  public OpcodeBreakdown breakdown(long tracedNanos, long untracedNanos) {
+    double[] estimates = new double[256];
+    double total = 0;
+    for (int opcode = 0; opcode < 256; opcode++) {
+      if (sampledCounts[opcode] > 0) {
+        estimates[opcode] = (double) sampledNanos[opcode] / sampledCounts[opcode] * counts[opcode];
+        total += estimates[opcode];
+      }
+    }
+    double scale = total > 0 ? untracedNanos / total : 0;
+    List<OpcodeBreakdown.Entry> entries = new ArrayList<>();
+    for (int opcode = 0; opcode < 256; opcode++) {
+      if (counts[opcode] > 0) {
+        entries.add(
+            new OpcodeBreakdown.Entry(
+                opcode, names[opcode], counts[opcode], gas[opcode], estimates[opcode] * scale));
+      }
+    }
+    entries.sort(Comparator.comparingDouble(OpcodeBreakdown.Entry::nanos).reversed());
+    return new OpcodeBreakdown(List.copyOf(entries), tracedNanos, untracedNanos, sampleEvery);
+  }
+}
@@ -0,0 +1,191 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static com.hedera.cartevm.Step.OP_CALLDATACOPY;
+import static com.hedera.cartevm.Step.OP_CODECOPY;
+import static com.hedera.cartevm.Step.OP_EXP;
+import static com.hedera.cartevm.Step.OP_EXTCODECOPY;
+import static com.hedera.cartevm.Step.OP_LOG0;
+import static com.hedera.cartevm.Step.OP_MULMOD;
+import static com.hedera.cartevm.Step.OP_POP;
+import static com.hedera.cartevm.Step.OP_SHA3;
+import static com.hedera.cartevm.Step.RETURN_CONTRACT_ADDRESS;
+import static com.hedera.cartevm.Step.push;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Families of steps that differ only in the size of one operand, for the opcodes whose cost depends
+ * on it: exponent width for EXP, modulus width for MULMOD, and data length for KECCAK256, the
+ * copies and the logs. Data lives at {@link #DATA_OFFSET}, above the fixed reservations in {@link
+ * Step}. Gas follows the Berlin and later schedules, memory expansion from empty memory is the
+ * one-time overhead.
+ */
+public class OperandSweep {
+
+  static final String GROUP = "operand-sweep";
+  static final int DATA_OFFSET = 0x1000;
+  static final int[] LENGTHS = {0, 32, 64, 128, 256, 512, 1024, 2048, 4096, 8192};
+
+  /** Which family a generated step belongs to, and its operand size in bytes. */
+  record Sized(String family, int size) {}
+
+  private static final Map<String, Sized> sizes = new HashMap<>();
+
+  private OperandSweep() {}
+
+  static Sized sizeOf(String stepName) {
+    synchronized (sizes) {
+      return sizes.get(stepName);
+    }
+  }
+
+  public static List<Step> steps() {
+    List<Step> steps = new ArrayList<>();
+    String word = "ff".repeat(32);
+    for (int bytes = 1; bytes <= 32; bytes++) {
+      String operand = "ff".repeat(bytes);
+      steps.add(
+          sized(GROUP, "exp", bytes, push(operand, "03"), OP_POP, OP_EXP, 18 + 50 * bytes, 0));
+      steps.add(
+          sized(GROUP, "mulmod", bytes, push(operand, word, word), OP_POP, OP_MULMOD, 19, 0));
+    }
+    for (int length : LENGTHS) {
+      String offset = HarnessAssembler.evenHex(DATA_OFFSET);
+      String size = HarnessAssembler.evenHex(length);
+      int words = (length + 31) / 32;
+      int memory = length == 0 ? 0 : memoryCost(DATA_OFFSET + length);
+      steps.add(
+          sized(
+              GROUP,
+              "keccak",
+              length,
+              push(size, offset),
+              OP_POP,
+              OP_SHA3,
+              38 + 6 * words,
+              memory));
+      steps.add(
+          sized(
+              GROUP,
+              "calldatacopy",
+              length,
+              push(size, "00", offset),
+              "",
+              OP_CALLDATACOPY,
+              12 + 3 * words,
+              memory));
+      steps.add(
+          sized(
+              GROUP,
+              "codecopy",
+              length,
+              push(size, "00", offset),
+              "",
+              OP_CODECOPY,
+              12 + 3 * words,
+              memory));
+      steps.add(
+          sized(
+              GROUP,
+              "extcodecopy",
+              length,
+              push(size, "00", offset, RETURN_CONTRACT_ADDRESS),
+              "",
+              OP_EXTCODECOPY,
+              112 + 3 * words,
+              // the first access is cold
+              2500 + memory));
+      for (int topics = 0; topics <= 4; topics++) {
+        String[] operands = new String[topics + 2];
+        for (int i = 0; i < topics; i++) {
+          operands[i] = "0" + i;
+        }
+        operands[topics] = size;
+        operands[topics + 1] = offset;
+        steps.add(
+            sized(
+                GROUP,
+                "log" + topics,
+                length,
+                push(operands),
+                "",
+                Integer.toHexString(Integer.parseInt(OP_LOG0, 16) + topics),
+                3 * (topics + 2) + 375 + 375 * topics + 8 * length,
+                memory));
+      }
+    }
+    return Collections.unmodifiableList(steps);
+  }
+
+  /** A step registered with its family and size, tagged with both group and family. */
+  static Step sized(
+      String group,
+      String family,
+      int size,
+      String localSetup,
+      String localCleanup,
+      String execution,
+      int gasCost,
+      int gasOverhead) {
+    return sized(
+        group, family, size, "", "", localSetup, localCleanup, execution, gasCost, gasOverhead);
+  }
+
+  static Step sized(
+      String group,
+      String family,
+      int size,
+      String globalSetup,
+      String globalCleanup,
+      String localSetup,
+      String localCleanup,
+      String execution,
+      int gasCost,
+      int gasOverhead) {
+    String name = family + "_" + size;
+    synchronized (sizes) {
+      sizes.put(name, new Sized(family, size));
+    }
+    return new Step(
+        name,
+        globalSetup,
+        globalCleanup,
+        localSetup,
+        localCleanup,
+        execution,
+        gasCost,
+        gasOverhead,
+        Set.of(group, family));
+  }
+
+  /** Gas to expand empty memory to cover this many bytes. */
+  static int memoryCost(int bytes) {
+    int words = (bytes + 31) / 32;
+    return 3 * words + words * words / 512;
+  }
+}
@@ -0,0 +1,44 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Decides which combinations of a sweep this process runs. Combinations are identified by their
+ * position in the enumeration, which is the same on every host given the same options.
+ */
+public interface Partition {
+
+  Partition ALL = (run, index) -> true;
+
+  boolean claims(int run, long index);
+
+  /** Parses {@code i/n}, the zero based shard {@code i} of {@code n}. */
+  static Partition shard(String spec) {
+    String[] parts = spec.split("/");
+    checkArgument(parts.length == 2, "Shard must be of the form i/n, not %s", spec);
+    int shard = Integer.parseInt(parts[0].trim());
+    int shards = Integer.parseInt(parts[1].trim());
+    checkArgument(shards > 0 && shard >= 0 && shard < shards, "No shard %s", spec);
+    return (run, index) -> index % shards == shard;
+  }
+}
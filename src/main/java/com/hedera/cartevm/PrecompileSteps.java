@@ -0,0 +1,215 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static com.hedera.cartevm.HarnessAssembler.evenHex;
+import static com.hedera.cartevm.OperandSweep.memoryCost;
+import static com.hedera.cartevm.OperandSweep.sized;
+import static com.hedera.cartevm.Step.OP_GAS;
+import static com.hedera.cartevm.Step.OP_MSTORE;
+import static com.hedera.cartevm.Step.OP_POP;
+import static com.hedera.cartevm.Step.OP_STATICCALL;
+import static com.hedera.cartevm.Step.push;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Steps that STATICCALL a precompiled contract every iteration, with representative and
+ * adversarial inputs: hashes of growing inputs, modexp with long exponents and moduli, bn254
+ * pairings of up to eight points and blake2f with up to 65536 rounds. Steps that vary in one
+ * dimension are registered as sized families, so their cost curves are fitted too.
+ *
+ * <p>Inputs are written once by the global setup, each distinct input in its own region from 0x3400
+ * up, and every call returns into 0x3000. This is clear of the operand sweep data, but overlaps the
+ * memory of the large memory steps, so the two are only run side by side one step at a time.
+ */
+public class PrecompileSteps {
+
+  static final String GROUP = "precompile";
+  static final int OUTPUT = 0x3000;
+  static final int OUTPUT_SIZE = 0x400;
+  // five pushes, GAS, a warm STATICCALL and a POP
+  static final int CALL_GAS = 119;
+  static final int[] HASH_SIZES = {32, 256, 1024};
+  static final int[] MODEXP_EXPONENTS = {32, 128, 512};
+  static final int[] MODEXP_MODULI = {64, 256};
+  static final int[] PAIRINGS = {1, 2, 4, 8};
+  static final int[] BLAKE2F_ROUNDS = {12, 4096, 65536};
+
+  // signed with the key of a94f5374fce5edbc8e2a8697c15331677e6ebf0b
+  static final String ECRECOVER_INPUT =
+      "18c547e4f7b0f325ad1e56f57e26c745b09a3e503d86e00e5255ff7f715d3d1c"
+          + "000000000000000000000000000000000000000000000000000000000000001c"
+          + "73b1693892219d736caba55bdb67216e485557ea6b6af75f37096c9aa6a5a75f"
+          + "eeb940b1d03b21e36b0e47e79769f095fe2ab855bd91e3a38756b7d75a9c4549";
+  static final String G1 = word(1) + word(2);
+  static final String G2 =
+      "198e9393920d483a7260bfb731fb5d25f1aa493335a9e71297e485b7aef312c2"
+          + "1800deef121f1e76426a00665e5c4479674322d4f75edadd46debd5cd992f6ed"
+          + "090689d0585ff075ec9e99ad690c3395bc4b313370b38ef355acdadcd122975b"
+          + "12c85ea5db8c6deb4aab71808dcb408fe3d1e7690c43d37b4ce6cc0166fa7daa";
+  // the blake2b initial state for a 64 byte digest, and the message "abc", from EIP-152
+  static final String BLAKE2F_STATE =
+      "48c9bdf267e6096a3ba7ca8485ae67bb2bf894fe72f36e3cf1361d5f3af54fa5"
+          + "d182e6ad7f520e511f6c3e2b8c68059b6bbd41fbabd9831f79217e1319cde05b";
+  static final String BLAKE2F_MESSAGE = "616263" + "00".repeat(125);
+  static final String BLAKE2F_OFFSETS = "0300000000000000" + "00".repeat(8) + "01";
+
+  private final Map<String, Integer> offsets = new HashMap<>();
+  private int top = OUTPUT + OUTPUT_SIZE;
+
+  private PrecompileSteps() {}
+
+  public static List<Step> steps() {
+    return new PrecompileSteps().build();
+  }
+
+  private List<Step> build() {
+    List<Step> steps = new ArrayList<>();
+    steps.add(call("ecrecover", 0x01, ECRECOVER_INPUT, 3000));
+    for (int size : HASH_SIZES) {
+      String data = "5a".repeat(size);
+      int words = (size + 31) / 32;
+      steps.add(sizedCall("sha256", size, 0x02, data, 60 + 12 * words));
+      steps.add(sizedCall("ripemd160", size, 0x03, data, 600 + 120 * words));
+      steps.add(sizedCall("identity", size, 0x04, data, 15 + 3 * words));
+    }
+    for (int exponent : MODEXP_EXPONENTS) {
+      steps.add(
+          sizedCall(
+              "modexp", exponent, 0x05, modexp(32, exponent, 32), modexpGas(32, exponent, 32)));
+    }
+    for (int modulus : MODEXP_MODULI) {
+      steps.add(
+          sizedCall(
+              "modexp_modulus",
+              modulus,
+              0x05,
+              modexp(modulus, 32, modulus),
+              modexpGas(modulus, 32, modulus)));
+    }
+    steps.add(call("ecadd", 0x06, G1 + G1, 150));
+    steps.add(call("ecmul", 0x07, G1 + "ff".repeat(32), 6000));
+    for (int pairs : PAIRINGS) {
+      steps.add(
+          sizedCall("ecpairing", pairs, 0x08, (G1 + G2).repeat(pairs), 45000 + 34000 * pairs));
+    }
+    for (int rounds : BLAKE2F_ROUNDS) {
+      String input = "%08x".formatted(rounds) + BLAKE2F_STATE + BLAKE2F_MESSAGE + BLAKE2F_OFFSETS;
+      steps.add(sizedCall("blake2f", rounds, 0x09, input, rounds));
+    }
+    return Collections.unmodifiableList(steps);
+  }
+
+  private Step call(String name, int address, String input, int gas) {
+    int offset = offset(input);
+    return new Step(
+        name,
+        store(offset, input),
+        "",
+        callCode(address, offset, input),
+        OP_POP,
+        OP_STATICCALL,
+        CALL_GAS + gas,
+        overhead(offset, input),
+        Set.of(GROUP, name));
+  }
+
+  private Step sizedCall(String family, int size, int address, String input, int gas) {
+    int offset = offset(input);
+    return sized(
+        GROUP,
+        family,
+        size,
+        store(offset, input),
+        "",
+        callCode(address, offset, input),
+        OP_POP,
+        OP_STATICCALL,
+        CALL_GAS + gas,
+        overhead(offset, input));
+  }
+
+  /** The region of this input, the same one for every step with the same input. */
+  private int offset(String input) {
+    return offsets.computeIfAbsent(
+        input,
+        i -> {
+          int offset = top;
+          top += padded(i);
+          return offset;
+        });
+  }
+
+  private static int padded(String input) {
+    return (input.length() / 2 + 31) / 32 * 32;
+  }
+
+  private static String store(int offset, String input) {
+    String data = input + "0".repeat(padded(input) * 2 - input.length());
+    StringBuilder code = new StringBuilder();
+    for (int i = 0; i < data.length(); i += 64) {
+      code.append(push(data.substring(i, i + 64), evenHex(offset + i / 2))).append(OP_MSTORE);
+    }
+    return code.toString();
+  }
+
+  private static int overhead(int offset, String input) {
+    return 9 * padded(input) / 32 + memoryCost(offset + padded(input));
+  }
+
+  private static String callCode(int address, int offset, String input) {
+    return push(
+            evenHex(OUTPUT_SIZE),
+            evenHex(OUTPUT),
+            evenHex(input.length() / 2),
+            evenHex(offset),
+            evenHex(address))
+        + OP_GAS;
+  }
+
+  private static String word(long value) {
+    return "%064x".formatted(value);
+  }
+
+  /** A modexp input with every bit of the exponent and the modulus set. */
+  static String modexp(int baseLength, int exponentLength, int modulusLength) {
+    return word(baseLength)
+        + word(exponentLength)
+        + word(modulusLength)
+        + "5a".repeat(baseLength)
+        + "ff".repeat(exponentLength)
+        + "ff".repeat(modulusLength);
+  }
+
+  /** EIP-2565 pricing, for an exponent whose bits are all set. */
+  static int modexpGas(int baseLength, int exponentLength, int modulusLength) {
+    long words = (Math.max(baseLength, modulusLength) + 7) / 8;
+    long iterations =
+        exponentLength <= 32 ? 8L * exponentLength - 1 : 8L * (exponentLength - 32) + 255;
+    return (int) Math.max(200, words * words * Math.max(iterations, 1) / 3);
+  }
+}
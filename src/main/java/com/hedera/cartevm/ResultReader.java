@@ -0,0 +1,174 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Reads results written by {@link CsvResultSink} or {@link JsonLinesResultSink} back in. Only the
+ * time statistics are stored, so the throughput statistics of a read result are the single gas per
+ * second figure. Opcode breakdowns are only stored, and so only read back, as JSON Lines.
+ */
+public class ResultReader {
+
+  private ResultReader() {}
+
+  public static List<RunResult> read(Path file) throws IOException {
+    try (Stream<String> lines = Files.lines(file)) {
+      List<String> nonEmpty = lines.filter(line -> !line.isBlank()).toList();
+      if (nonEmpty.isEmpty()) {
+        return List.of();
+      }
+      return nonEmpty.get(0).startsWith("{") ? readJsonLines(nonEmpty) : readCsv(nonEmpty);
+    }
+  }
+
+  static List<RunResult> readCsv(List<String> lines) {
+    List<String> header = CsvResultSink.fields(lines.get(0));
+    Map<String, Integer> columns =
+        IntStream.range(0, header.size())
+            .boxed()
+            .collect(Collectors.toMap(header::get, Function.identity()));
+    List<RunResult> results = new ArrayList<>();
+    for (String line : lines.subList(1, lines.size())) {
+      // columns are found by name, so files from before a column was added still read
+      List<String> values = CsvResultSink.fields(line);
+      Function<String, String> column = name -> values.get(columns.get(name));
+      Statistics time =
+          new Statistics(
+              Integer.parseInt(column.apply("samples")),
+              Double.parseDouble(column.apply("min_nanos")),
+              Double.parseDouble(column.apply("nanos")),
+              Double.parseDouble(column.apply("mean_nanos")),
+              Double.parseDouble(column.apply("p90_nanos")),
+              Double.parseDouble(column.apply("p99_nanos")),
+              Double.parseDouble(column.apply("max_nanos")),
+              Double.parseDouble(column.apply("stddev_nanos")),
+              Double.parseDouble(column.apply("ci95_nanos")));
+      results.add(
+          new RunResult(
+              Integer.parseInt(column.apply("run")),
+              Long.parseLong(column.apply("index")),
+              column.apply("fork"),
+              List.of(column.apply("steps").split("__")),
+              column.apply("halt"),
+              Long.parseLong(column.apply("gas_used")),
+              Long.parseLong(column.apply("setup_nanos")),
+              time,
+              single(Double.parseDouble(column.apply("gas_per_second"))),
+              Boolean.parseBoolean(column.apply("noisy")),
+              column.apply("revert"),
+              null,
+              // results written before allocation was measured have no such columns
+              columns.containsKey("allocated_bytes") && !column.apply("allocated_bytes").isEmpty()
+                  ? new Allocation(
+                      Long.parseLong(column.apply("allocated_bytes")),
+                      Long.parseLong(column.apply("process_gc_count")),
+                      Long.parseLong(column.apply("process_gc_millis")))
+                  : null));
+    }
+    return results;
+  }
+
+  static List<RunResult> readJsonLines(List<String> lines) {
+    List<RunResult> results = new ArrayList<>();
+    for (String line : lines) {
+      JsonObject json = JsonParser.parseString(line).getAsJsonObject();
+      List<String> steps = new ArrayList<>();
+      JsonArray stepArray = json.getAsJsonArray("steps");
+      for (JsonElement step : stepArray) {
+        steps.add(step.getAsString());
+      }
+      Statistics time =
+          new Statistics(
+              json.get("samples").getAsInt(),
+              json.get("minNanos").getAsDouble(),
+              json.get("nanos").getAsDouble(),
+              json.get("meanNanos").getAsDouble(),
+              json.get("p90Nanos").getAsDouble(),
+              json.get("p99Nanos").getAsDouble(),
+              json.get("maxNanos").getAsDouble(),
+              json.get("stddevNanos").getAsDouble(),
+              json.get("ci95Nanos").getAsDouble());
+      results.add(
+          new RunResult(
+              json.get("run").getAsInt(),
+              json.get("index").getAsLong(),
+              json.get("fork").getAsString(),
+              List.copyOf(steps),
+              json.get("halt").getAsString(),
+              json.get("gasUsed").getAsLong(),
+              json.get("setupNanos").getAsLong(),
+              time,
+              single(json.get("gasPerSecond").getAsDouble()),
+              json.get("noisy").getAsBoolean(),
+              json.get("revert").getAsString(),
+              json.has("opcodes") ? readOpcodes(json) : null,
+              json.has("allocation") ? readAllocation(json.getAsJsonObject("allocation")) : null));
+    }
+    return results;
+  }
+
+  private static Allocation readAllocation(JsonObject allocation) {
+    return new Allocation(
+        allocation.get("allocatedBytes").getAsLong(),
+        allocation.get("processGcCount").getAsLong(),
+        allocation.get("processGcMillis").getAsLong());
+  }
+
+  private static OpcodeBreakdown readOpcodes(JsonObject json) {
+    List<OpcodeBreakdown.Entry> entries = new ArrayList<>();
+    for (JsonElement element : json.getAsJsonArray("opcodes")) {
+      JsonObject opcode = element.getAsJsonObject();
+      entries.add(
+          new OpcodeBreakdown.Entry(
+              opcode.get("opcode").getAsInt(),
+              opcode.get("name").getAsString(),
+              opcode.get("count").getAsLong(),
+              opcode.get("gas").getAsLong(),
+              opcode.get("nanos").getAsDouble()));
+    }
+    long untracedNanos = json.get("nanos").getAsLong();
+    // the sampling rate is not stored
+    return new OpcodeBreakdown(
+        List.copyOf(entries),
+        untracedNanos + json.get("tracerOverheadNanos").getAsLong(),
+        untracedNanos,
+        0);
+  }
+
+  private static Statistics single(double value) {
+    return Statistics.of(new double[] {value});
+  }
+}
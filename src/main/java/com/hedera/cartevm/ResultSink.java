@@ -0,0 +1,40 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.io.Closeable;
+
+/** Where {@link LocalRunner} sends its results. Implementations must be thread safe. */
+public interface ResultSink extends Closeable {
+
+  void accept(RunResult result);
+
+  /** Push buffered results to the operating system. */
+  default void flush() {}
+
+  /** Push buffered results all the way to disk, for results that others rely on being there. */
+  default void sync() {
+    flush();
+  }
+
+  @Override
+  default void close() {}
+}
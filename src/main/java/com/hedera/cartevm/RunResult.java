@@ -0,0 +1,61 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.util.List;
+
+/**
+ * The outcome of measuring one combination.
+ *
+ * @param run which repeat of the whole sweep this came from, counting down to 1
+ * @param index position of the combination in the enumeration, stable across hosts and shards
+ * @param time statistics of the measured nanoseconds, the median is the reported time
+ * @param throughput statistics of the gas per second of each measured run
+ * @param opcodes per opcode breakdown of a traced run, or null when not tracing
+ * @param allocation memory use of the measured runs, or null when not measured
+ */
+public record RunResult(
+    int run,
+    long index,
+    String fork,
+    List<String> steps,
+    String haltReason,
+    long gasUsed,
+    long setupNanos,
+    Statistics time,
+    Statistics throughput,
+    boolean noisy,
+    String revert,
+    OpcodeBreakdown opcodes,
+    Allocation allocation) {
+
+  public String name() {
+    return String.join("__", steps);
+  }
+
+  public long nanos() {
+    return (long) time.median();
+  }
+
+  public double gasPerSecond() {
+    return gasUsed * 1_000_000_000.0 / nanos();
+  }
+}
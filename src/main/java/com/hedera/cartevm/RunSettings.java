@@ -0,0 +1,89 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.List;
+
+/**
+ * How {@link LocalRunner} measures each combination.
+ *
+ * @param warmup runs per combination before measuring, to let the JIT settle
+ * @param iterations measured runs per combination
+ * @param maxVariation coefficient of variation above which a combination is flagged as noisy
+ * @param sink where the results of each combination go
+ * @param run which repeat of the sweep is being measured
+ * @param traceSample when positive, trace one extra run per combination timing one in this many
+ *     operations
+ * @param forks the forks each combination is measured under, in order
+ * @param measureAllocation record the bytes allocated and the collections during measured runs
+ * @param prewarm put the fixed and the cold step accounts and slots in the access list, so they are
+ *     warm from the first access
+ */
+public record RunSettings(
+    int warmup,
+    int iterations,
+    double maxVariation,
+    ResultSink sink,
+    int run,
+    int traceSample,
+    List<Fork> forks,
+    boolean measureAllocation,
+    boolean prewarm) {
+
+  public static final RunSettings DEFAULT =
+      new RunSettings(
+          0, 1, 0.05, new ConsoleResultSink(), 1, 0, List.of(Fork.london), false, false);
+
+  public RunSettings {
+    checkArgument(warmup >= 0, "Warmup must not be negative");
+    checkArgument(iterations >= 1, "At least one iteration must be measured");
+    checkArgument(!forks.isEmpty(), "At least one fork must be measured");
+    forks = List.copyOf(forks);
+  }
+
+  public RunSettings withRun(int run) {
+    return new RunSettings(
+        warmup,
+        iterations,
+        maxVariation,
+        sink,
+        run,
+        traceSample,
+        forks,
+        measureAllocation,
+        prewarm);
+  }
+
+  public RunSettings withForks(List<Fork> forks) {
+    return new RunSettings(
+        warmup,
+        iterations,
+        maxVariation,
+        sink,
+        run,
+        traceSample,
+        forks,
+        measureAllocation,
+        prewarm);
+  }
+}
@@ -0,0 +1,235 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.units.bigints.UInt256;
+import org.hyperledger.besu.datatypes.Address;
+import org.hyperledger.besu.datatypes.Wei;
+import org.hyperledger.besu.evm.fluent.SimpleAccount;
+
+/**
+ * A large generated world state in a memory mapped file: accounts with a nonce and balance, and the
+ * storage slots of the receiver. Both are open addressing hash tables of 64 byte records at most
+ * half full, so a lookup is a hash and usually a single random read into the file.
+ *
+ * <p>Account {@code i} has the address {@code 0x5eed} followed by {@code i} as a big endian number,
+ * and slot {@code i} has the key {@code i}, so programs can reach them with arithmetic. Nonces,
+ * balances and slot values are drawn from the seed. The file is named after the seed and sizes and
+ * is generated once, later runs map it as is.
+ */
+public class StateStore implements Closeable {
+
+  private static final long MAGIC = 0x4361727445564d53L;
+  private static final int VERSION = 1;
+  private static final int HEADER = 64;
+  private static final int RECORD = 64;
+  private static final int SEGMENT_BITS = 30;
+  private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+  static final byte[] ADDRESS_PREFIX = {0x5e, (byte) 0xed};
+
+  private final FileChannel channel;
+  private final MappedByteBuffer[] segments;
+  private final long accountCapacity;
+  private final long slotCapacity;
+  private final long slotsOffset;
+
+  private StateStore(FileChannel channel, FileChannel.MapMode mode, long accounts, long slots)
+      throws IOException {
+    this.channel = channel;
+    this.accountCapacity = capacity(accounts);
+    this.slotCapacity = capacity(slots);
+    this.slotsOffset = HEADER + accountCapacity * RECORD;
+    long size = slotsOffset + slotCapacity * RECORD;
+    segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS)];
+    for (int i = 0; i < segments.length; i++) {
+      long start = (long) i << SEGMENT_BITS;
+      segments[i] = channel.map(mode, start, Math.min(1L << SEGMENT_BITS, size - start));
+    }
+  }
+
+  /** Map the state for this seed and size, generating it first if it is not in the directory. */
+  public static StateStore open(Path directory, long seed, long accounts, long slots)
+      throws IOException {
+    Files.createDirectories(directory);
+    Path file = directory.resolve("state-%d-%d-%d.bin".formatted(seed, accounts, slots));
+    if (!isComplete(file, seed, accounts, slots)) {
+      Path temp = Files.createTempFile(directory, "state", ".tmp");
+      try (FileChannel channel =
+          FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        StateStore store = new StateStore(channel, FileChannel.MapMode.READ_WRITE, accounts, slots);
+        store.generate(seed, accounts, slots);
+        for (MappedByteBuffer segment : store.segments) {
+          segment.force();
+        }
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    return new StateStore(
+        FileChannel.open(file, StandardOpenOption.READ),
+        FileChannel.MapMode.READ_ONLY,
+        accounts,
+        slots);
+  }
+
+  private static boolean isComplete(Path file, long seed, long accounts, long slots)
+      throws IOException {
+    if (!Files.exists(file)) {
+      return false;
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER);
+      channel.read(header, 0);
+      return header.getLong(0) == MAGIC
+          && header.getInt(8) == VERSION
+          && header.getLong(16) == seed
+          && header.getLong(24) == accounts
+          && header.getLong(32) == slots;
+    }
+  }
+
+  private static long capacity(long entries) {
+    return Long.highestOneBit(Math.max(1, entries * 2 - 1)) << 1;
+  }
+
+  public static Address address(long index) {
+    byte[] address = new byte[20];
+    System.arraycopy(ADDRESS_PREFIX, 0, address, 0, ADDRESS_PREFIX.length);
+    ByteBuffer.wrap(address).putLong(12, index);
+    return Address.wrap(Bytes.wrap(address));
+  }
+
+  private void generate(long seed, long accounts, long slots) {
+    SplittableRandom random = new SplittableRandom(seed);
+    byte[] record = new byte[RECORD];
+    ByteBuffer buffer = ByteBuffer.wrap(record);
+    for (long i = 0; i < accounts; i++) {
+      Arrays.fill(record, (byte) 0);
+      System.arraycopy(address(i).toArrayUnsafe(), 0, record, 0, 20);
+      buffer.putLong(24, random.nextInt(1 << 16));
+      buffer.putLong(32, random.nextLong(1, Long.MAX_VALUE));
+      insert(HEADER, accountCapacity, 20, record);
+    }
+    for (long i = 0; i < slots; i++) {
+      Arrays.fill(record, 0, 32, (byte) 0);
+      buffer.putLong(24, i);
+      for (int offset = 32; offset < RECORD; offset += 8) {
+        buffer.putLong(offset, random.nextLong());
+      }
+      // zero is how an empty record is told apart
+      record[RECORD - 1] |= 1;
+      insert(slotsOffset, slotCapacity, 32, record);
+    }
+    ByteBuffer header = ByteBuffer.allocate(HEADER);
+    header.putLong(0, MAGIC).putInt(8, VERSION);
+    header.putLong(16, seed).putLong(24, accounts).putLong(32, slots);
+    segments[0].put(0, header.array());
+  }
+
+  private void insert(long tableOffset, long capacity, int keyLength, byte[] record) {
+    byte[] existing = new byte[RECORD];
+    long position = hash(record, keyLength) & (capacity - 1);
+    while (true) {
+      long offset = tableOffset + position * RECORD;
+      read(offset, existing);
+      if (isEmpty(existing)) {
+        segments[(int) (offset >>> SEGMENT_BITS)].put((int) (offset & SEGMENT_MASK), record);
+        return;
+      }
+      position = (position + 1) & (capacity - 1);
+    }
+  }
+
+  /** The record with this key, or null. */
+  private byte[] find(long tableOffset, long capacity, byte[] key) {
+    byte[] record = new byte[RECORD];
+    long position = hash(key, key.length) & (capacity - 1);
+    while (true) {
+      read(tableOffset + position * RECORD, record);
+      if (isEmpty(record)) {
+        return null;
+      }
+      if (Arrays.equals(record, 0, key.length, key, 0, key.length)) {
+        return record;
+      }
+      position = (position + 1) & (capacity - 1);
+    }
+  }
+
+  private void read(long offset, byte[] into) {
+    segments[(int) (offset >>> SEGMENT_BITS)].get((int) (offset & SEGMENT_MASK), into);
+  }
+
+  private static boolean isEmpty(byte[] record) {
+    for (byte b : record) {
+      if (b != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** FNV-1a, finished with the SplitMix64 mixer so sequential keys spread over the table. */
+  private static long hash(byte[] bytes, int length) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < length; i++) {
+      hash = (hash ^ (bytes[i] & 0xff)) * 0x100000001b3L;
+    }
+    hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+    hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+    return hash ^ (hash >>> 31);
+  }
+
+  /** A read only copy of the generated account, or null if there is none at this address. */
+  public SimpleAccount account(Address address) {
+    byte[] record = find(HEADER, accountCapacity, address.toArrayUnsafe());
+    if (record == null) {
+      return null;
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(record);
+    return new SimpleAccount(address, buffer.getLong(24), Wei.of(buffer.getLong(32)));
+  }
+
+  /** The generated value of a receiver storage slot, zero if it was not generated. */
+  public UInt256 slot(UInt256 key) {
+    byte[] record = find(slotsOffset, slotCapacity, key.toArrayUnsafe());
+    if (record == null) {
+      return UInt256.ZERO;
+    }
+    return UInt256.fromBytes(Bytes.wrap(record, 32, 32));
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,90 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.util.Arrays;
+
+/** Summary statistics of the measured samples of one combination. */
+public record Statistics(
+    int count,
+    double min,
+    double median,
+    double mean,
+    double p90,
+    double p99,
+    double max,
+    double stddev,
+    double confidence95) {
+
+  // two sided 95% Student's t critical values for 1 to 30 degrees of freedom
+  private static final double[] T_95 = {
+    12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228, 2.201, 2.179, 2.160,
+    2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086, 2.080, 2.074, 2.069, 2.064, 2.060, 2.056,
+    2.052, 2.048, 2.045, 2.042
+  };
+
+  public static Statistics of(double[] samples) {
+    if (samples.length == 0) {
+      throw new IllegalArgumentException("No samples");
+    }
+    double[] sorted = samples.clone();
+    Arrays.sort(sorted);
+    int n = sorted.length;
+    double mean = Arrays.stream(sorted).sum() / n;
+    double variance = 0;
+    for (double sample : sorted) {
+      variance += (sample - mean) * (sample - mean);
+    }
+    double stddev = n > 1 ? Math.sqrt(variance / (n - 1)) : 0;
+    double confidence95 = n > 1 ? tCritical(n - 1) * stddev / Math.sqrt(n) : 0;
+    return new Statistics(
+        n,
+        sorted[0],
+        percentile(sorted, 0.5),
+        mean,
+        percentile(sorted, 0.9),
+        percentile(sorted, 0.99),
+        sorted[n - 1],
+        stddev,
+        confidence95);
+  }
+
+  public static Statistics of(long[] samples) {
+    return of(Arrays.stream(samples).asDoubleStream().toArray());
+  }
+
+  static double tCritical(int degreesOfFreedom) {
+    return degreesOfFreedom <= T_95.length ? T_95[degreesOfFreedom - 1] : 1.960;
+  }
+
+  /** Linear interpolation between the closest ranks. */
+  static double percentile(double[] sorted, double fraction) {
+    double rank = fraction * (sorted.length - 1);
+    int lower = (int) Math.floor(rank);
+    int upper = (int) Math.ceil(rank);
+    return sorted[lower] + (sorted[upper] - sorted[lower]) * (rank - lower);
+  }
+
+  /** Coefficient of variation, the standard deviation relative to the mean. */
+  public double variation() {
+    return mean == 0 ? 0 : stddev / mean;
+  }
+}
@@ -25,6 +25,7 @@ import static com.google.common.base.Preconditions.checkState;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 public class Step {
 
@@ -95,6 +96,7 @@ public class Step {
   public static final String OP_MSIZE = "59";
   public static final String OP_GAS = "5A";
   public static final String OP_JUMPDEST = "5B";
+  public static final String OP_MCOPY = "5E";
   public static final String OP_PUSH1 = "60";
   //  public static final String OP_PUSH2 = "61";
   //  public static final String OP_PUSH3 = "62";
@@ -175,6 +177,7 @@ public class Step {
   //  public static final String OP_INVALID = "FE";
   public static final String OP_SELFDESTRUCT = "FF";
 
+  static final String BUILT_IN = "builtin";
   protected static final List<Step> steps = new ArrayList<>();
   static final int NUM_PUSH0 = Integer.parseInt(OP_PUSH1, 16) - 1;
   static final int NUM_DUP0 = Integer.parseInt(OP_DUP1, 16) - 1;
@@ -213,6 +216,11 @@ public class Step {
    * 0x0340 - SELFDESTRUCT return
    * 0x0360 - REVERT args
    * 0x0380 - REVERT return
+   * 0x03A0 - cold step index, see ColdSteps
+   * 0x03C0 - large state slot index, see LargeStateSteps
+   * 0x03E0 - large state account index, see LargeStateSteps
+   * 0x1000 - operand sweep data, up to 8 KiB, see OperandSweep
+   * 0x3000 - precompile output, and their inputs from 0x3400, see PrecompileSteps
    */
 
   static {
@@ -565,6 +573,7 @@ public class Step {
   private final String executionCode;
   private final int gasCost;
   private final int gasOverhead;
+  private final Set<String> tags;
 
   public Step(
       String name,
@@ -613,6 +622,28 @@ public class Step {
       String executionCode,
       int gasCost,
       int gasOverhead) {
+    this(
+        name,
+        globalSetupCode,
+        globalCleanupCode,
+        localSetupCode,
+        localCleanupCode,
+        executionCode,
+        gasCost,
+        gasOverhead,
+        builtInTags(executionCode));
+  }
+
+  public Step(
+      String name,
+      String globalSetupCode,
+      String globalCleanupCode,
+      String localSetupCode,
+      String localCleanupCode,
+      String executionCode,
+      int gasCost,
+      int gasOverhead,
+      Set<String> tags) {
     this.name = name;
     this.globalSetupCode = globalSetupCode;
     this.globalCleanupCode = globalCleanupCode;
@@ -621,6 +652,43 @@ public class Step {
     this.executionCode = executionCode;
     this.gasCost = gasCost;
     this.gasOverhead = gasOverhead;
+    this.tags = tags;
+  }
+
+  /**
+   * Tags a built in step with {@code builtin} and the group of the opcode it executes, following
+   * the opcode ranges of the yellow paper, so {@code --step-tags} can select built in steps too.
+   */
+  static Set<String> builtInTags(String executionCode) {
+    if (executionCode.isEmpty()) {
+      return Set.of(BUILT_IN);
+    }
+    int opcode = Integer.parseInt(executionCode.substring(0, 2), 16);
+    String group;
+    if (opcode < 0x10) {
+      group = "arithmetic";
+    } else if (opcode < 0x20) {
+      group = "bitwise";
+    } else if (opcode < 0x30) {
+      group = "keccak";
+    } else if (opcode < 0x40) {
+      group = "environment";
+    } else if (opcode < 0x50) {
+      group = "block";
+    } else if (opcode == 0x50 || (opcode >= 0x5f && opcode < 0xa0)) {
+      group = "stack";
+    } else if (opcode == 0x54 || opcode == 0x55 || opcode == 0x5c || opcode == 0x5d) {
+      group = "storage";
+    } else if ((opcode >= 0x51 && opcode <= 0x53) || opcode == 0x59 || opcode == 0x5e) {
+      group = "memory";
+    } else if (opcode < 0x60) {
+      group = "flow";
+    } else if (opcode < 0xb0) {
+      group = "log";
+    } else {
+      group = "system";
+    }
+    return Set.of(BUILT_IN, group);
   }
 
   static String push(String... values) {
@@ -669,4 +737,8 @@ public class Step {
   public int getGasOverhead() {
     return gasOverhead;
   }
+
+  public Set<String> getTags() {
+    return tags;
+  }
 }
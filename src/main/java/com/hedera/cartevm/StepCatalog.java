@@ -0,0 +1,318 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongBinaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Steps defined in JSON files rather than in {@link Step}, so variants can be added without a
+ * rebuild. A catalog holds a {@code steps} array of templates:
+ *
+ * <pre>
+ * {"name": "exp_{bytes}", "tags": ["arithmetic"], "parameters": {"bytes": {"from": 1, "to": 32}},
+ *  "setup": "push:{bytes*ff} push:02", "execution": "EXP", "cleanup": "POP",
+ *  "gasCost": "18 + 50 * {bytes}"}
+ * </pre>
+ *
+ * <p>Each parameter is a list of values or a {@code from}/{@code to}/{@code step} range, and a
+ * template expands into one step per combination of parameter values. In the name and the gas
+ * expressions {@code {p}} is the value in decimal. The code fields are whitespace separated tokens,
+ * each an opcode mnemonic named as in {@link Step}, {@code push:<hex>}, or raw hex, and in them
+ * {@code {p}} is also decimal, {@code {p:x}} is the value in hex and {@code {p*ff}} repeats
+ * {@code ff} value times. The optional fields are {@code globalSetup}, {@code globalCleanup},
+ * {@code setup}, {@code cleanup} and {@code gasOverhead}.
+ */
+public class StepCatalog {
+
+  private static final Pattern PLACEHOLDER = Pattern.compile("\\{(\\w+)(?::x|\\*(\\w+))?}");
+  private static final Map<String, String> MNEMONICS = mnemonics();
+
+  private StepCatalog() {}
+
+  private static Map<String, String> mnemonics() {
+    Map<String, String> mnemonics = new HashMap<>();
+    for (Field field : Step.class.getFields()) {
+      if (field.getName().startsWith("OP_")
+          && Modifier.isStatic(field.getModifiers())
+          && field.getType() == String.class) {
+        try {
+          mnemonics.put(field.getName().substring(3), (String) field.get(null));
+        } catch (IllegalAccessException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }
+    return mnemonics;
+  }
+
+  public static List<Step> load(Path file) throws IOException {
+    try (Reader reader = Files.newBufferedReader(file)) {
+      JsonObject catalog = JsonParser.parseReader(reader).getAsJsonObject();
+      List<Step> loaded = new ArrayList<>();
+      Set<String> names = new HashSet<>();
+      for (JsonElement template : catalog.getAsJsonArray("steps")) {
+        for (Step step : expand(template.getAsJsonObject())) {
+          // a name that leaves out a parameter would silently collapse a family
+          if (!names.add(step.getName())) {
+            throw new IllegalArgumentException("Duplicate step name " + step.getName());
+          }
+          loaded.add(step);
+        }
+      }
+      return loaded;
+    } catch (JsonParseException | IllegalArgumentException | IllegalStateException e) {
+      throw new IOException("Invalid step catalog " + file + ": " + e.getMessage(), e);
+    }
+  }
+
+  /** Replace the steps with the same name, and add the rest at the end. */
+  public static void merge(List<Step> steps, List<Step> loaded) {
+    for (Step step : loaded) {
+      int existing = -1;
+      for (int i = 0; i < steps.size(); i++) {
+        if (steps.get(i).getName().equals(step.getName())) {
+          existing = i;
+          break;
+        }
+      }
+      if (existing >= 0) {
+        steps.set(existing, step);
+      } else {
+        steps.add(step);
+      }
+    }
+  }
+
+  static List<Step> expand(JsonObject template) {
+    List<Map<String, Long>> bindings = new ArrayList<>();
+    bindings.add(Map.of());
+    if (template.has("parameters")) {
+      for (Map.Entry<String, JsonElement> parameter :
+          template.getAsJsonObject("parameters").entrySet()) {
+        List<Map<String, Long>> expanded = new ArrayList<>();
+        for (Map<String, Long> binding : bindings) {
+          for (long value : values(parameter.getValue())) {
+            Map<String, Long> extended = new LinkedHashMap<>(binding);
+            extended.put(parameter.getKey(), value);
+            expanded.add(extended);
+          }
+        }
+        bindings = expanded;
+      }
+    }
+    Set<String> tags = Set.of();
+    if (template.has("tags")) {
+      List<String> tagList = new ArrayList<>();
+      template.getAsJsonArray("tags").forEach(tag -> tagList.add(tag.getAsString()));
+      tags = Set.copyOf(tagList);
+    }
+    List<Step> steps = new ArrayList<>();
+    for (Map<String, Long> binding : bindings) {
+      steps.add(
+          new Step(
+              substitute(template.get("name").getAsString(), binding),
+              code(template, "globalSetup", binding),
+              code(template, "globalCleanup", binding),
+              code(template, "setup", binding),
+              code(template, "cleanup", binding),
+              code(template, "execution", binding),
+              intGas(template, "gasCost", binding),
+              intGas(template, "gasOverhead", binding),
+              tags));
+    }
+    return steps;
+  }
+
+  private static List<Long> values(JsonElement parameter) {
+    List<Long> values = new ArrayList<>();
+    if (parameter.isJsonArray()) {
+      for (JsonElement value : parameter.getAsJsonArray()) {
+        values.add(value.getAsLong());
+      }
+    } else {
+      JsonObject range = parameter.getAsJsonObject();
+      long step = range.has("step") ? range.get("step").getAsLong() : 1;
+      if (step <= 0) {
+        throw new IllegalArgumentException("Range step must be positive");
+      }
+      for (long value = range.get("from").getAsLong();
+          value <= range.get("to").getAsLong();
+          value += step) {
+        values.add(value);
+      }
+    }
+    return values;
+  }
+
+  static String substitute(String text, Map<String, Long> binding) {
+    Matcher matcher = PLACEHOLDER.matcher(text);
+    StringBuilder result = new StringBuilder();
+    while (matcher.find()) {
+      Long value = binding.get(matcher.group(1));
+      if (value == null) {
+        throw new IllegalArgumentException("Unknown parameter " + matcher.group(1));
+      }
+      String replacement;
+      if (matcher.group(2) != null) {
+        replacement = matcher.group(2).repeat(Math.toIntExact(value));
+      } else if (matcher.group().endsWith(":x}")) {
+        replacement = HarnessAssembler.evenHex(value);
+      } else {
+        replacement = Long.toString(value);
+      }
+      matcher.appendReplacement(result, replacement);
+    }
+    matcher.appendTail(result);
+    return result.toString();
+  }
+
+  static String code(JsonObject template, String field, Map<String, Long> binding) {
+    if (!template.has(field)) {
+      return "";
+    }
+    StringBuilder code = new StringBuilder();
+    for (String token : substitute(template.get(field).getAsString(), binding).split("\\s+")) {
+      if (token.isEmpty()) {
+        continue;
+      }
+      if (token.startsWith("push:")) {
+        code.append(Step.push(token.substring(5)));
+      } else if (MNEMONICS.containsKey(token)) {
+        code.append(MNEMONICS.get(token));
+      } else if (token.matches("(0x)?([0-9a-fA-F]{2})+")) {
+        code.append(token.startsWith("0x") ? token.substring(2) : token);
+      } else {
+        throw new IllegalArgumentException("Unknown token " + token + " in " + field);
+      }
+    }
+    return code.toString();
+  }
+
+  static long gas(JsonObject template, String field, Map<String, Long> binding) {
+    if (!template.has(field)) {
+      return 0;
+    }
+    return new Expression(substitute(template.get(field).getAsString(), binding)).parse();
+  }
+
+  private static int intGas(JsonObject template, String field, Map<String, Long> binding) {
+    long gas = gas(template, field, binding);
+    if (gas < 0 || gas > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(field + " " + gas + " is out of range");
+    }
+    return (int) gas;
+  }
+
+  /**
+   * Integer arithmetic with + - * / and parentheses, enough for gas formulas. A division must be
+   * exact and nothing may overflow, a gas cost is never silently rounded.
+   */
+  private static class Expression {
+    private final String text;
+    private int position;
+
+    Expression(String text) {
+      this.text = text.replace(" ", "");
+    }
+
+    long parse() {
+      long value = sum();
+      if (position != text.length()) {
+        throw new IllegalArgumentException("Unexpected '" + text.charAt(position) + "' in " + text);
+      }
+      return value;
+    }
+
+    private long sum() {
+      long value = product();
+      while (position < text.length() && "+-".indexOf(text.charAt(position)) >= 0) {
+        char operator = text.charAt(position++);
+        value =
+            operator == '+'
+                ? exact(Math::addExact, value, product())
+                : exact(Math::subtractExact, value, product());
+      }
+      return value;
+    }
+
+    private long product() {
+      long value = term();
+      while (position < text.length() && "*/".indexOf(text.charAt(position)) >= 0) {
+        char operator = text.charAt(position++);
+        value = operator == '*' ? exact(Math::multiplyExact, value, term()) : divide(value, term());
+      }
+      return value;
+    }
+
+    private long exact(LongBinaryOperator operation, long a, long b) {
+      try {
+        return operation.applyAsLong(a, b);
+      } catch (ArithmeticException e) {
+        throw new IllegalArgumentException("Overflow in " + text, e);
+      }
+    }
+
+    private long divide(long a, long b) {
+      if (b == 0 || a % b != 0) {
+        throw new IllegalArgumentException(a + " / " + b + " is not a whole number in " + text);
+      }
+      return a / b;
+    }
+
+    private long term() {
+      if (position < text.length() && text.charAt(position) == '(') {
+        position++;
+        long value = sum();
+        if (position >= text.length() || text.charAt(position++) != ')') {
+          throw new IllegalArgumentException("Missing ')' in " + text);
+        }
+        return value;
+      }
+      int start = position;
+      while (position < text.length() && Character.isDigit(text.charAt(position))) {
+        position++;
+      }
+      if (start == position) {
+        throw new IllegalArgumentException("Expected a number in " + text);
+      }
+      return Long.parseLong(text.substring(start, position));
+    }
+  }
+}
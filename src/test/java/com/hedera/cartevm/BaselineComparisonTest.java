@@ -0,0 +1,100 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class BaselineComparisonTest {
+
+  static RunResult result(String step, double... nanos) {
+    return new RunResult(
+        1,
+        0,
+        "cancun",
+        List.of(step),
+        "COMPLETED_SUCCESS",
+        1_000,
+        0,
+        Statistics.of(nanos),
+        Statistics.of(new double[] {1e9}),
+        false,
+        "",
+        null,
+        null);
+  }
+
+  @Test
+  void welchTStatistic() {
+    assertEquals(Math.sqrt(5), BaselineComparison.welchT(10, 10, 2, 10, 12, 2), 1e-9);
+    assertEquals(-Math.sqrt(5), BaselineComparison.welchT(10, 12, 2, 10, 10, 2), 1e-9);
+  }
+
+  @Test
+  void welchSatterthwaiteDegreesOfFreedom() {
+    // equal variances and counts give the pooled n1 + n2 - 2
+    assertEquals(18, BaselineComparison.welchDegreesOfFreedom(10, 2, 10, 2), 1e-9);
+    // variances of the means 0.2 and 0.9: 1.1^2 / (0.2^2 / 4 + 0.9^2 / 9)
+    assertEquals(12.1, BaselineComparison.welchDegreesOfFreedom(5, 1, 10, 3), 1e-9);
+  }
+
+  @Test
+  void significanceNeedsTwoSamplesOnBothSides() {
+    assertFalse(BaselineComparison.significant(1, 10, 0, 10, 20, 1));
+    assertTrue(BaselineComparison.significant(10, 10, 1, 10, 20, 1));
+    assertFalse(BaselineComparison.significant(10, 10, 2, 10, 10.5, 2));
+  }
+
+  @Test
+  void countsSignificantSlowdownsOverTheThreshold() {
+    BaselineComparison comparison =
+        new BaselineComparison(
+            result -> {},
+            List.of(
+                result("slower", 1000, 1010, 990, 1005, 995),
+                result("barely_slower", 1000, 1010, 990, 1005, 995),
+                result("faster", 1000, 1010, 990, 1005, 995),
+                result("noisy", 1000, 1500, 500, 1200, 800)));
+    comparison.accept(result("slower", 1200, 1210, 1190, 1205, 1195));
+    comparison.accept(result("barely_slower", 1030, 1040, 1020, 1035, 1025));
+    comparison.accept(result("faster", 800, 810, 790, 805, 795));
+    comparison.accept(result("noisy", 1100, 1600, 600, 1300, 900));
+    comparison.accept(result("unmatched", 1000, 1000));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    int regressions = comparison.report(new PrintStream(bytes, true, StandardCharsets.UTF_8), 0.05);
+    String report = bytes.toString(StandardCharsets.UTF_8);
+    // barely_slower is significant but under the threshold, noisy is not significant
+    assertEquals(1, regressions, report);
+    List<String> lines = report.lines().toList();
+    assertEquals(4, lines.size(), report);
+    assertTrue(lines.get(0).startsWith("REGRESSION\tcombination\tcancun/slower\t"), report);
+    assertTrue(lines.get(1).startsWith("slower\tcombination\tcancun/barely_slower\t"), report);
+    assertTrue(lines.get(2).startsWith("faster\tcombination\tcancun/faster\t"), report);
+    assertTrue(lines.get(3).contains("1 unmatched, 1 regressions"), report);
+  }
+}
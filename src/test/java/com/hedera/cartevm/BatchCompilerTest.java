@@ -0,0 +1,64 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class BatchCompilerTest {
+
+  @Test
+  void mapsBytecodeBackBySourceName() throws IOException {
+    String output =
+        """
+        {"contracts": {
+          "add.yul": {"object": {"evm": {"bytecode": {"object": "6001"}}}},
+          "empty.yul": {"object": {"evm": {"bytecode": {"object": ""}}}}
+        }}""";
+    assertEquals(
+        Map.of("add", "6001"),
+        BatchCompiler.parseOutput(output, List.of("add", "empty", "missing")));
+  }
+
+  @Test
+  void errorsLeaveTheSourceUncompiled() throws IOException {
+    String output =
+        """
+        {"errors": [{"severity": "error", "formattedMessage": "ParserError"}]}""";
+    assertEquals(Map.of(), BatchCompiler.parseOutput(output, List.of("add")));
+  }
+
+  @Test
+  void malformedOutputNamesTheBatch() {
+    for (String output : List.of("{\"contracts\": ", "[]", "{\"errors\": [{}]}")) {
+      IOException e =
+          assertThrows(
+              IOException.class, () -> BatchCompiler.parseOutput(output, List.of("add", "mul")));
+      assertTrue(e.getMessage().contains("2 programs starting with add"), e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.common.base.Ticker;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class BeamSearchTest {
+
+  static final Step A = new Step("a", "", Step.OP_POP, "", 1);
+  static final Step B = new Step("b", "", Step.OP_POP, "", 1);
+  static final Step C = new Step("c", "", Step.OP_POP, "", 1);
+
+  /** Scores a sequence by the sum of its step costs, so lower costs are slower sequences. */
+  static class StubScorer implements BeamSearch.Scorer {
+    final Map<Step, Double> costs;
+    final List<List<Step>> scored = new ArrayList<>();
+
+    StubScorer(Map<Step, Double> costs) {
+      this.costs = costs;
+    }
+
+    @Override
+    public double score(List<Step> sequence, long index, boolean verbose) {
+      assertEquals(scored.size(), index);
+      scored.add(sequence);
+      return sequence.stream().mapToDouble(costs::get).sum();
+    }
+  }
+
+  /** A clock that only moves when told to. */
+  static class ManualTicker extends Ticker {
+    long nanos;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+  }
+
+  static List<String> names(List<BeamSearch.Scored> beam) {
+    return beam.stream().map(scored -> CartEVM.name(scored.steps())).toList();
+  }
+
+  @Test
+  void keepsTheSlowestExtensionsOfEachLevel() {
+    StubScorer scorer = new StubScorer(Map.of(A, 1.0, B, 2.0, C, 3.0));
+    List<BeamSearch.Scored> beam =
+        new BeamSearch(List.of(A, B, C), 2, 2, Duration.ofHours(1), scorer).search(false);
+    // three singles, then the two kept singles extended by each of the three steps
+    assertEquals(9, scorer.scored.size());
+    assertEquals(List.of("a__a", "a__b"), names(beam));
+    assertEquals(2.0, beam.get(0).gasPerSecond());
+  }
+
+  @Test
+  void dropsSequencesThatDoNotComplete() {
+    StubScorer scorer = new StubScorer(Map.of(A, 1.0, B, 2.0, C, Double.NaN));
+    List<BeamSearch.Scored> beam =
+        new BeamSearch(List.of(A, B, C), 2, 3, Duration.ofHours(1), scorer).search(false);
+    // c never completes, so only a and b are extended and c is never kept
+    assertEquals(3 + 2 * 3, scorer.scored.size());
+    assertEquals(List.of("a__a", "a__b", "b__a"), names(beam));
+  }
+
+  @Test
+  void stopsWhenTheBudgetRunsOut() {
+    ManualTicker ticker = new ManualTicker();
+    StubScorer scorer = new StubScorer(Map.of(A, 1.0, B, 2.0, C, 3.0));
+    // every measurement takes a second
+    BeamSearch.Scorer slowScorer =
+        (sequence, index, verbose) -> {
+          ticker.nanos += 1_000_000_000L;
+          return scorer.score(sequence, index, verbose);
+        };
+    List<BeamSearch.Scored> beam =
+        new BeamSearch(List.of(A, B, C), 3, 2, Duration.ofSeconds(5), slowScorer, ticker)
+            .search(false);
+    // the three singles and two of the second level fit, the partial level is still ranked
+    assertEquals(5, scorer.scored.size());
+    assertEquals(List.of("a__a", "a__b"), names(beam));
+  }
+}
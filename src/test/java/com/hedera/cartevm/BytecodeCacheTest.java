@@ -0,0 +1,104 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BytecodeCacheTest {
+
+  static final List<String> ASSEMBLE = CodeGenerator.SOLC_COMMAND;
+
+  @TempDir Path directory;
+
+  /** A cache that never forks solc, so the tests run without one installed. */
+  BytecodeCache cache(long maxBytes) {
+    return new BytecodeCache(directory, maxBytes, () -> "0.8.21");
+  }
+
+  @Test
+  void roundTrips() {
+    BytecodeCache cache = cache(1024);
+    cache.put(ASSEMBLE, "object a", "6001");
+    assertEquals(Optional.of("6001"), cache.get(ASSEMBLE, "object a"));
+    assertEquals(Optional.empty(), cache.get(ASSEMBLE, "object b"));
+  }
+
+  @Test
+  void replacingAnEntryCountsOnlyTheNewSize() {
+    BytecodeCache cache = cache(1024);
+    cache.put(ASSEMBLE, "a", "60016002");
+    cache.put(ASSEMBLE, "a", "6001");
+    assertEquals(4, cache.currentBytes());
+  }
+
+  @Test
+  void evictsDownToNinetyPercent() {
+    BytecodeCache cache = cache(100);
+    for (int i = 0; i < 11; i++) {
+      cache.put(ASSEMBLE, "source " + i, "60".repeat(5));
+    }
+    assertTrue(cache.currentBytes() <= 90, "evicted to " + cache.currentBytes());
+  }
+
+  @Test
+  void countsEntriesAlreadyOnDisk() {
+    cache(1024).put(ASSEMBLE, "a", "6001");
+    assertEquals(4, cache(1024).currentBytes());
+  }
+
+  @Test
+  void solcVersionIsPartOfTheKey() {
+    BytecodeCache older = new BytecodeCache(directory, 1024, () -> "0.8.20");
+    older.put(ASSEMBLE, "a", "6001");
+    assertEquals(Optional.empty(), cache(1024).get(ASSEMBLE, "a"));
+  }
+
+  @Test
+  void compileModeIsPartOfTheKey() {
+    BytecodeCache cache = cache(1024);
+    cache.put(ASSEMBLE, "a", "6001");
+    assertEquals(Optional.empty(), cache.get(BatchCompiler.SOLC_STANDARD_JSON_COMMAND, "a"));
+  }
+
+  @Test
+  void asksForTheVersionOnlyWhenUsed() {
+    int[] asked = {0};
+    BytecodeCache cache =
+        new BytecodeCache(
+            directory,
+            1024,
+            () -> {
+              asked[0]++;
+              return "0.8.21";
+            });
+    assertEquals(0, asked[0]);
+    cache.put(ASSEMBLE, "a", "6001");
+    cache.get(ASSEMBLE, "a");
+    assertEquals(1, asked[0]);
+  }
+}
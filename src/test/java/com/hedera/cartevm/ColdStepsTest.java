@@ -0,0 +1,66 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.BitSet;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ColdStepsTest {
+
+  static Step step(String name) {
+    return ColdSteps.steps().stream()
+        .filter(s -> s.getName().equals(name))
+        .findFirst()
+        .orElseThrow();
+  }
+
+  @Test
+  void strideVisitsEveryIndexBeforeRepeating() {
+    long stride = Long.parseUnsignedLong(LargeStateSteps.STRIDE, 16);
+    BitSet seen = new BitSet(ColdSteps.COUNT);
+    long index = 0;
+    for (int i = 0; i < ColdSteps.COUNT; i++) {
+      index = Long.remainderUnsigned(index + stride, ColdSteps.COUNT);
+      assertFalse(seen.get((int) index), "index " + index + " repeats after " + i);
+      seen.set((int) index);
+    }
+  }
+
+  @Test
+  void overheadIsTheExpansionPastTheIndex() {
+    // 0x3C0 bytes are 30 words
+    assertEquals(3 * 30 + 30 * 30 / 512, ColdSteps.INDEX_OVERHEAD);
+    assertEquals(ColdSteps.INDEX_OVERHEAD, step("balance_cold").getGasOverhead());
+    assertEquals(ColdSteps.INDEX_OVERHEAD + 9, step("call_cold").getGasOverhead());
+  }
+
+  @Test
+  void maxGasLimitIsSetByTheCheapestStep() {
+    List<Step> steps = ColdSteps.steps();
+    int cheapest = steps.stream().mapToInt(Step::getGasCost).min().orElseThrow();
+    assertEquals(step("sload_cold").getGasCost(), cheapest);
+    assertEquals((long) ColdSteps.COUNT * cheapest, ColdSteps.maxGasLimit());
+  }
+}
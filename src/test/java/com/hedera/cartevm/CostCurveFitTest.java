@@ -0,0 +1,141 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CostCurveFitTest {
+
+  static final long GAS_LIMIT = 10_000_000;
+  static final int SIZE_LIMIT = 5120;
+
+  static long executions(Step step) {
+    return new CodeGenerator(List.of(step), GAS_LIMIT, SIZE_LIMIT).layout().executions();
+  }
+
+  static RunResult result(List<String> steps, long gasUsed, double nanos) {
+    return new RunResult(
+        1,
+        0,
+        "cancun",
+        steps,
+        "COMPLETED_SUCCESS",
+        gasUsed,
+        0,
+        Statistics.of(new double[] {nanos}),
+        Statistics.of(new double[] {1e9}),
+        false,
+        "",
+        null,
+        null);
+  }
+
+  static String report(CostCurveFit fit) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    fit.report(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+    return bytes.toString(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void warnsWithoutSingleStepResults() {
+    List<Step> steps = MemorySteps.steps(List.of(2048, 4096));
+    CostCurveFit fit = new CostCurveFit(result -> {}, steps, GAS_LIMIT, SIZE_LIMIT);
+    fit.accept(result(List.of("mload_mem_2048", "mload_mem_4096"), 1_000, 1_000));
+    String report = report(fit);
+    assertTrue(report.startsWith("No single step results"), report);
+    assertEquals(1, report.lines().count());
+  }
+
+  @Test
+  void fitsTimeAgainstSize() {
+    List<Step> steps = MemorySteps.steps(List.of(2048, 4096, 8192));
+    CostCurveFit fit = new CostCurveFit(result -> {}, steps, GAS_LIMIT, SIZE_LIMIT);
+    for (Step step : steps) {
+      if (step.getName().startsWith("mcopy_mem_")) {
+        int size = OperandSweep.sizeOf(step.getName()).size();
+        // one nanosecond per copied byte, with the gas of the full program
+        long executions = executions(step);
+        fit.accept(result(List.of(step.getName()), GAS_LIMIT, (double) executions * size / 2));
+      }
+    }
+    List<String> lines = report(fit).lines().toList();
+    assertEquals(2, lines.size());
+    String[] row = lines.get(1).split("\t");
+    assertEquals("cancun/mcopy_mem", row[0]);
+    assertEquals("3", row[1]);
+    assertEquals(0.5, Double.parseDouble(row[3]), 1e-9);
+    assertEquals(1.0, Double.parseDouble(row[4]), 1e-9);
+  }
+
+  @Test
+  void countsMemoryGrowthInTheGas() {
+    List<Step> steps = MemorySteps.steps(List.of(2048, 4096, 8192));
+    CostCurveFit fit = new CostCurveFit(result -> {}, steps, GAS_LIMIT, SIZE_LIMIT);
+    for (Step step : steps) {
+      if (step.getName().startsWith("mgrow_")) {
+        // the declared cost of 28 is the same for every size, the expansion is in the overhead
+        long gasUsed =
+            CodeGenerator.HARNESS_OVERHEAD_ONE_TIME
+                + step.getGasOverhead()
+                + executions(step) * step.getGasCost();
+        fit.accept(result(List.of(step.getName()), gasUsed, executions(step)));
+      }
+    }
+    List<CostCurveFit.Point> points = fit.points("cancun/mgrow");
+    assertEquals(3, points.size());
+    for (CostCurveFit.Point point : points) {
+      assertTrue(point.gas() > 28, "gas " + point.gas());
+    }
+    // the larger the memory, the more the expansion adds to each execution
+    assertTrue(points.get(2).gas() > points.get(1).gas());
+    assertTrue(points.get(1).gas() > points.get(0).gas());
+  }
+
+  @Test
+  void skipsProgramsThatHalted() {
+    List<Step> steps = MemorySteps.steps(List.of(2048));
+    CostCurveFit fit = new CostCurveFit(result -> {}, steps, GAS_LIMIT, SIZE_LIMIT);
+    RunResult halted = result(List.of("mcopy_mem_2048"), GAS_LIMIT, 1_000);
+    fit.accept(
+        new RunResult(
+            1,
+            0,
+            "london",
+            halted.steps(),
+            "INVALID_OPERATION",
+            halted.gasUsed(),
+            0,
+            halted.time(),
+            halted.throughput(),
+            false,
+            "",
+            null,
+            null));
+    assertTrue(report(fit).startsWith("No single step results"));
+  }
+}
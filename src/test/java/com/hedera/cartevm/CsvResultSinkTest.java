@@ -0,0 +1,110 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CsvResultSinkTest {
+
+  @TempDir Path directory;
+
+  static RunResult result(String name, String revert, Allocation allocation) {
+    return new RunResult(
+        1,
+        42,
+        "london",
+        List.of(name, "add_small"),
+        "COMPLETED_SUCCESS",
+        1_000_000,
+        2_000,
+        new Statistics(3, 900, 1_000, 1_010, 1_100, 1_200, 1_300, 50, 20),
+        Statistics.of(new double[] {1e9}),
+        false,
+        revert,
+        null,
+        allocation);
+  }
+
+  @Test
+  void quotesOnlyWhenNeeded() {
+    assertEquals("add_small", CsvResultSink.quote("add_small"));
+    assertEquals("\"a,b\"", CsvResultSink.quote("a,b"));
+    assertEquals("\"say \"\"hi\"\"\"", CsvResultSink.quote("say \"hi\""));
+    assertEquals("", CsvResultSink.quote(""));
+  }
+
+  @Test
+  void fieldsUndoQuoting() {
+    assertEquals(
+        List.of("a,b", "say \"hi\"", "", "plain"),
+        CsvResultSink.fields(
+            String.join(
+                ",",
+                CsvResultSink.quote("a,b"),
+                CsvResultSink.quote("say \"hi\""),
+                "",
+                "plain")));
+  }
+
+  @Test
+  void allocationColumnsFollowTheRevert() throws IOException {
+    Path file = directory.resolve("results.csv");
+    try (CsvResultSink sink = new CsvResultSink(file, 1, false)) {
+      // 4096 bytes over a million gas, two collections taking seven milliseconds
+      assertTrue(
+          sink.format(result("plain", "", new Allocation(4096, 2, 7)))
+              .endsWith(",false,,4096,0.004,2,7"));
+      assertTrue(sink.format(result("plain", "08c379a0", null)).endsWith(",false,08c379a0,,,,"));
+    }
+    assertTrue(CsvResultSink.HEADER.endsWith(",process_gc_count,process_gc_millis"));
+  }
+
+  @Test
+  void roundTripsThroughTheReader() throws IOException {
+    Path file = directory.resolve("results.csv");
+    try (CsvResultSink sink = new CsvResultSink(file, 1, false)) {
+      sink.accept(result("catalog, \"odd\" name", "", new Allocation(4096, 2, 7)));
+      sink.accept(result("plain", "08c379a0", null));
+    }
+    List<RunResult> read = ResultReader.read(file);
+    assertEquals(2, read.size());
+    RunResult first = read.get(0);
+    assertEquals(List.of("catalog, \"odd\" name", "add_small"), first.steps());
+    assertEquals(42, first.index());
+    assertEquals("london", first.fork());
+    assertEquals(1_000_000, first.gasUsed());
+    assertEquals(1_000, first.nanos());
+    assertEquals(1_300, first.time().max(), 0);
+    assertEquals("", first.revert());
+    assertEquals(new Allocation(4096, 2, 7), first.allocation());
+    RunResult second = read.get(1);
+    assertEquals("08c379a0", second.revert());
+    assertNull(second.allocation());
+  }
+}
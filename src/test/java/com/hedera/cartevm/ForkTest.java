@@ -0,0 +1,60 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.hyperledger.besu.evm.frame.MessageFrame;
+import org.junit.jupiter.api.Test;
+
+class ForkTest {
+
+  static MessageFrame runOnce(Step step, Fork fork) {
+    LocalRunner runner =
+        new LocalRunner(
+            List.of(step), 1_000_000, 5120, RunSettings.DEFAULT.withForks(List.of(fork)));
+    return runner.executeOnce(runner.layout(1, 3));
+  }
+
+  @Test
+  void mcopyOnlyRunsFromCancun() {
+    Step mcopy =
+        MemorySteps.steps(List.of(2048)).stream()
+            .filter(s -> s.getName().equals("mcopy_mem_2048"))
+            .findFirst()
+            .orElseThrow();
+    MessageFrame london = runOnce(mcopy, Fork.london);
+    MessageFrame cancun = runOnce(mcopy, Fork.cancun);
+    assertEquals(MessageFrame.State.EXCEPTIONAL_HALT, london.getState());
+    assertEquals(MessageFrame.State.COMPLETED_SUCCESS, cancun.getState());
+    // a halt burns all the gas, so the two forks charge the same program differently
+    assertTrue(london.getRemainingGas() < cancun.getRemainingGas());
+  }
+
+  @Test
+  void push0OnlyRunsFromShanghai() {
+    Step push0 = new Step("push0", "", Step.OP_POP, "5f", 4);
+    assertEquals(MessageFrame.State.EXCEPTIONAL_HALT, runOnce(push0, Fork.paris).getState());
+    assertEquals(MessageFrame.State.COMPLETED_SUCCESS, runOnce(push0, Fork.shanghai).getState());
+  }
+}
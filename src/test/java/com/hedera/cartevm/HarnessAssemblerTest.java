@@ -0,0 +1,149 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HexFormat;
+import org.junit.jupiter.api.Test;
+
+class HarnessAssemblerTest {
+
+  /** Runs the few opcodes the harness uses and returns the gas, failing on a bad jump. */
+  static long run(String hex) {
+    byte[] code = HexFormat.of().parseHex(hex);
+    Deque<Long> stack = new ArrayDeque<>();
+    long gas = 0;
+    int pc = 0;
+    while (true) {
+      int op = code[pc] & 0xff;
+      if (op >= 0x60 && op <= 0x7f) {
+        int size = op - 0x5f;
+        long value = 0;
+        for (int i = 1; i <= size; i++) {
+          value = (value << 8) | (code[pc + i] & 0xff);
+        }
+        stack.push(value);
+        gas += 3;
+        pc += size + 1;
+        continue;
+      }
+      switch (op) {
+        case 0x00 -> {
+          return gas;
+        }
+        case 0x5b -> gas += 1;
+        case 0x50 -> {
+          stack.pop();
+          gas += 2;
+        }
+        case 0x81 -> {
+          long top = stack.pop();
+          long second = stack.peek();
+          stack.push(top);
+          stack.push(second);
+          gas += 3;
+        }
+        case 0x90 -> {
+          long top = stack.pop();
+          long second = stack.pop();
+          stack.push(top);
+          stack.push(second);
+          gas += 3;
+        }
+        case 0x01 -> {
+          stack.push(stack.pop() + stack.pop());
+          gas += 3;
+        }
+        case 0x10 -> {
+          stack.push(stack.pop() < stack.pop() ? 1L : 0L);
+          gas += 3;
+        }
+        case 0x15 -> {
+          stack.push(stack.pop() == 0 ? 1L : 0L);
+          gas += 3;
+        }
+        case 0x56 -> {
+          pc = jump(code, stack.pop());
+          gas += 8;
+          continue;
+        }
+        case 0x57 -> {
+          long target = stack.pop();
+          gas += 10;
+          if (stack.pop() != 0) {
+            pc = jump(code, target);
+            continue;
+          }
+        }
+        default -> throw new IllegalStateException("Unexpected opcode " + op + " at " + pc);
+      }
+      pc++;
+    }
+  }
+
+  static int jump(byte[] code, long target) {
+    assertEquals(0x5b, code[(int) target] & 0xff, "jump target " + target + " is a JUMPDEST");
+    return (int) target;
+  }
+
+  @Test
+  void harnessGasMatchesTheOverheadConstants() {
+    for (long loops : new long[] {1, 2, 7, 300}) {
+      String code =
+          HarnessAssembler.assemble(
+              new CodeGenerator.Program(loops, 1, "6001" + "50", "6002" + "50", "6003" + "50"));
+      long steps = 5 + 5 * loops + 5;
+      assertEquals(
+          CodeGenerator.HARNESS_OVERHEAD_ONE_TIME
+              + CodeGenerator.HARNESS_OVERHEAD_EACH_LOOP * loops
+              + steps,
+          run(code),
+          "gas for " + loops + " loops");
+    }
+  }
+
+  @Test
+  void emptyPartsAssemble() {
+    String code = HarnessAssembler.assemble(new CodeGenerator.Program(3, 0, "", "", ""));
+    assertEquals(
+        CodeGenerator.HARNESS_OVERHEAD_ONE_TIME + 3 * CodeGenerator.HARNESS_OVERHEAD_EACH_LOOP,
+        run(code));
+  }
+
+  @Test
+  void rejectsHarnessesBeyondTwoByteJumps() {
+    String body = "5b".repeat(0x10000);
+    assertThrows(
+        IllegalStateException.class,
+        () -> HarnessAssembler.assemble(new CodeGenerator.Program(1, 1, "", body, "")));
+  }
+
+  @Test
+  void evenHexPadsToWholeBytes() {
+    assertEquals("0a", HarnessAssembler.evenHex(10));
+    assertEquals("0100", HarnessAssembler.evenHex(256));
+    assertEquals("00", HarnessAssembler.evenHex(0));
+  }
+}
@@ -0,0 +1,151 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalTest {
+
+  static final String SWEEP = "ordered,2";
+  static final String HEADER = "sweep\t" + SWEEP + "\n";
+
+  @TempDir Path directory;
+
+  /** Records when it was synced, and the journal contents at that moment. */
+  static class SyncRecorder implements ResultSink {
+    final Path journal;
+    final List<String> journalAtSync = new ArrayList<>();
+
+    SyncRecorder(Path journal) {
+      this.journal = journal;
+    }
+
+    @Override
+    public void accept(RunResult result) {}
+
+    @Override
+    public void sync() {
+      try {
+        journalAtSync.add(Files.readString(journal));
+      } catch (IOException e) {
+        throw new AssertionError(e);
+      }
+    }
+  }
+
+  @Test
+  void reopenedJournalKnowsCompletedCombinations() throws IOException {
+    Path file = directory.resolve("journal");
+    try (Journal journal = new Journal(file, SWEEP, 2, new SyncRecorder(file))) {
+      journal.markCompleted(1, 0);
+      journal.markCompleted(1, 5);
+      journal.markCompleted(2, 5);
+      journal.markCompleted(2, 5);
+      assertEquals(3, journal.size());
+    }
+    try (Journal journal = new Journal(file, SWEEP, 2, new SyncRecorder(file))) {
+      assertEquals(3, journal.size());
+      assertTrue(journal.isCompleted(1, 0));
+      assertTrue(journal.isCompleted(1, 5));
+      assertTrue(journal.isCompleted(2, 5));
+      assertFalse(journal.isCompleted(2, 0));
+      assertFalse(journal.isCompleted(3, 5));
+    }
+  }
+
+  @Test
+  void resultsAreSyncedBeforeTheJournalIsWritten() throws IOException {
+    Path file = directory.resolve("journal");
+    SyncRecorder sink = new SyncRecorder(file);
+    try (Journal journal = new Journal(file, SWEEP, 2, sink)) {
+      journal.markCompleted(1, 0);
+      journal.markCompleted(1, 1);
+      journal.markCompleted(1, 2);
+    }
+    // each sync of the results happened while the entries it covers were not yet journaled
+    assertEquals(List.of(HEADER, HEADER + "1\t0\n1\t1\n"), sink.journalAtSync);
+    assertEquals(HEADER + "1\t0\n1\t1\n1\t2\n", Files.readString(file));
+  }
+
+  @Test
+  void tornLastLineIsCutOff() throws IOException {
+    Path file = directory.resolve("journal");
+    Files.writeString(file, HEADER + "1\t0\n1\t1\n1\t2");
+    try (Journal journal = new Journal(file, SWEEP, 1, new SyncRecorder(file))) {
+      assertEquals(2, journal.size());
+      assertFalse(journal.isCompleted(1, 2));
+      journal.markCompleted(1, 3);
+    }
+    assertEquals(HEADER + "1\t0\n1\t1\n1\t3\n", Files.readString(file));
+  }
+
+  @Test
+  void aTornHeaderStartsAnEmptyJournal() throws IOException {
+    Path file = directory.resolve("journal");
+    Files.writeString(file, "swe");
+    try (Journal journal = new Journal(file, SWEEP, 1, new SyncRecorder(file))) {
+      assertEquals(0, journal.size());
+    }
+    assertEquals(HEADER, Files.readString(file));
+  }
+
+  @Test
+  void refusesToResumeADifferentSweep() throws IOException {
+    Path file = directory.resolve("journal");
+    try (Journal journal = new Journal(file, SWEEP, 1, new SyncRecorder(file))) {
+      journal.markCompleted(1, 0);
+    }
+    assertThrows(
+        IOException.class, () -> new Journal(file, "ordered,3", 1, new SyncRecorder(file)));
+  }
+
+  @Test
+  void recordsIndicesBeyondTheIntRange() throws IOException {
+    Path file = directory.resolve("journal");
+    long index = 3L * Integer.MAX_VALUE;
+    try (Journal journal = new Journal(file, SWEEP, 1, new SyncRecorder(file))) {
+      journal.markCompleted(1, index);
+    }
+    try (Journal journal = new Journal(file, SWEEP, 1, new SyncRecorder(file))) {
+      assertTrue(journal.isCompleted(1, index));
+      assertFalse(journal.isCompleted(1, index + 1));
+      assertFalse(journal.isCompleted(1, index & Integer.MAX_VALUE));
+    }
+  }
+
+  @Test
+  void rejectsFilesThatAreNotJournals() throws IOException {
+    Path file = directory.resolve("journal");
+    Files.writeString(file, HEADER + "1\tadd_small__mul_small\n");
+    assertThrows(IOException.class, () -> new Journal(file, SWEEP, 1, new SyncRecorder(file)));
+  }
+}
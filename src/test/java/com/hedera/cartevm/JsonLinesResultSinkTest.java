@@ -0,0 +1,64 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JsonLinesResultSinkTest {
+
+  @TempDir Path directory;
+
+  @Test
+  void allocationIsAnObject() throws IOException {
+    try (JsonLinesResultSink sink =
+        new JsonLinesResultSink(directory.resolve("results.jsonl"), 1, false)) {
+      JsonObject json =
+          JsonParser.parseString(
+                  sink.format(CsvResultSinkTest.result("plain", "", new Allocation(4096, 2, 7))))
+              .getAsJsonObject();
+      JsonObject allocation = json.getAsJsonObject("allocation");
+      assertEquals(4096, allocation.get("allocatedBytes").getAsLong());
+      // over a million gas
+      assertEquals(0.004096, allocation.get("bytesPerGas").getAsDouble(), 1e-12);
+      assertEquals(2, allocation.get("processGcCount").getAsLong());
+      assertEquals(7, allocation.get("processGcMillis").getAsLong());
+    }
+  }
+
+  @Test
+  void allocationIsLeftOutUnlessMeasured() throws IOException {
+    try (JsonLinesResultSink sink =
+        new JsonLinesResultSink(directory.resolve("results.jsonl"), 1, false)) {
+      JsonObject json =
+          JsonParser.parseString(sink.format(CsvResultSinkTest.result("plain", "", null)))
+              .getAsJsonObject();
+      assertFalse(json.has("allocation"));
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class LargeStateStepsTest {
+
+  @Test
+  void eachIndexPaysForItsOwnExpansion() {
+    // 0x3E0 bytes are 31 words, 0x400 bytes are 32
+    assertEquals(3 * 31 + 31 * 31 / 512, LargeStateSteps.SLOT_OVERHEAD);
+    assertEquals(3 * 32 + 32 * 32 / 512, LargeStateSteps.ACCOUNT_OVERHEAD);
+    for (Step step : LargeStateSteps.steps(100, 100)) {
+      int expected =
+          step.getName().startsWith("s")
+              ? LargeStateSteps.SLOT_OVERHEAD
+              : LargeStateSteps.ACCOUNT_OVERHEAD;
+      assertEquals(expected, step.getGasOverhead(), step.getName());
+    }
+  }
+}
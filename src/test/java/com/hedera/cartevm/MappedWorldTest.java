@@ -0,0 +1,67 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.apache.tuweni.units.bigints.UInt256;
+import org.hyperledger.besu.datatypes.Address;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedWorldTest {
+
+  @TempDir Path directory;
+
+  @Test
+  void storageReadsThroughUntilWritten() throws IOException {
+    try (StateStore store = StateStore.open(directory, 7, 10, 10)) {
+      Address receiver = Address.fromHexString(Step.RETURN_CONTRACT_ADDRESS);
+      MappedWorld world = new MappedWorld(store, receiver);
+      MappedWorld.StorageAccount account = (MappedWorld.StorageAccount) world.get(receiver);
+      assertSame(account, world.getAccount(receiver));
+      UInt256 generated = store.slot(UInt256.ONE);
+      assertEquals(generated, account.getStorageValue(UInt256.ONE));
+
+      // clearing a generated slot must not bring the generated value back
+      account.setStorageValue(UInt256.ONE, UInt256.ZERO);
+      assertEquals(UInt256.ZERO, account.getStorageValue(UInt256.ONE));
+      assertEquals(generated, account.getOriginalStorageValue(UInt256.ONE));
+
+      account.setStorageValue(UInt256.valueOf(100), UInt256.valueOf(5));
+      assertEquals(UInt256.valueOf(5), account.getStorageValue(UInt256.valueOf(100)));
+      assertEquals(UInt256.ZERO, account.getOriginalStorageValue(UInt256.valueOf(100)));
+    }
+  }
+
+  @Test
+  void accountsFallBackToTheStore() throws IOException {
+    try (StateStore store = StateStore.open(directory, 7, 10, 10)) {
+      MappedWorld world =
+          new MappedWorld(store, Address.fromHexString(Step.RETURN_CONTRACT_ADDRESS));
+      Address generated = StateStore.address(3);
+      assertEquals(store.account(generated).getBalance(), world.get(generated).getBalance());
+    }
+  }
+}
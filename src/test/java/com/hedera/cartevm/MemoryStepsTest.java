@@ -0,0 +1,154 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class MemoryStepsTest {
+
+  /** Just enough of an EVM for the mgrow code: stack, memory size and gas. */
+  static class Machine {
+    final Deque<Long> stack = new ArrayDeque<>();
+    long msize = 0;
+    long gas = 0;
+
+    void run(String hex) {
+      byte[] code = HexFormat.of().parseHex(hex);
+      int pc = 0;
+      while (pc < code.length) {
+        int op = code[pc] & 0xff;
+        if (op >= 0x60 && op <= 0x7f) {
+          int size = op - 0x5f;
+          long value = 0;
+          for (int i = 1; i <= size; i++) {
+            value = (value << 8) | (code[pc + i] & 0xff);
+          }
+          stack.push(value);
+          gas += 3;
+          pc += size + 1;
+          continue;
+        }
+        switch (op) {
+          case 0x01 -> {
+            stack.push(stack.pop() + stack.pop());
+            gas += 3;
+          }
+          case 0x03 -> {
+            stack.push(stack.pop() - stack.pop());
+            gas += 3;
+          }
+          case 0x06 -> {
+            long value = stack.pop();
+            long modulus = stack.pop();
+            stack.push(Math.floorMod(value, modulus));
+            gas += 5;
+          }
+          case 0x50 -> {
+            stack.pop();
+            gas += 2;
+          }
+          case 0x51 -> {
+            expand(stack.pop() + 32);
+            stack.push(0L);
+            gas += 3;
+          }
+          case 0x52 -> {
+            expand(stack.pop() + 32);
+            stack.pop();
+            gas += 3;
+          }
+          case 0x59 -> {
+            stack.push(msize);
+            gas += 2;
+          }
+          default -> throw new IllegalStateException("Unexpected opcode " + op);
+        }
+        pc++;
+      }
+    }
+
+    void expand(long end) {
+      long grown = (end + 31) / 32 * 32;
+      if (grown > msize) {
+        gas += OperandSweep.memoryCost((int) grown) - OperandSweep.memoryCost((int) msize);
+        msize = grown;
+      }
+    }
+  }
+
+  static List<String> names(List<Step> steps) {
+    return steps.stream().map(Step::getName).toList();
+  }
+
+  static Step step(List<Step> steps, String name) {
+    return steps.stream().filter(s -> s.getName().equals(name)).findFirst().orElseThrow();
+  }
+
+  @Test
+  void mgrowGrowsAWordPerIteration() {
+    int size = 4096;
+    Step mgrow = step(MemorySteps.steps(List.of(size)), "mgrow_" + size);
+    Machine machine = new Machine();
+    machine.run(mgrow.getGlobalSetupCode());
+    assertEquals(MemorySteps.LOW_MEMORY, machine.msize);
+    int iterations = 3 * size / 32;
+    for (int i = 1; i <= iterations; i++) {
+      machine.run(mgrow.getLocalSetupCode() + mgrow.getExecutionCode());
+      assertEquals(MemorySteps.LOW_MEMORY + 32L * Math.min(i, size / 32), machine.msize);
+      assertEquals(0, machine.stack.size());
+    }
+    assertEquals(mgrow.getGasOverhead() + (long) mgrow.getGasCost() * iterations, machine.gas);
+  }
+
+  @Test
+  void mcopyPaysForPartialWords() {
+    // half of 2080 bytes is 32.5 words, which MCOPY charges as 33
+    Step mcopy = step(MemorySteps.steps(List.of(2080)), "mcopy_mem_2080");
+    assertEquals(12 + 3 * 33, mcopy.getGasCost());
+    Step aligned = step(MemorySteps.steps(List.of(2048)), "mcopy_mem_2048");
+    assertEquals(12 + 3 * 32, aligned.getGasCost());
+  }
+
+  @Test
+  void mcopyNeedsCancun() {
+    List<Integer> sizes = List.of(2048);
+    assertEquals(
+        List.of("mload_mem_2048", "mstore_mem_2048", "mgrow_2048"),
+        names(MemorySteps.steps(sizes, List.of(Fork.london, Fork.shanghai))));
+    // under london as well as cancun, so the halt shows up in the results
+    assertEquals(
+        names(MemorySteps.steps(sizes)),
+        names(MemorySteps.steps(sizes, List.of(Fork.london, Fork.cancun))));
+  }
+
+  @Test
+  void rejectsSmallOrUnalignedSizes() {
+    assertThrows(IllegalArgumentException.class, () -> MemorySteps.steps(List.of(1024)));
+    assertThrows(IllegalArgumentException.class, () -> MemorySteps.steps(List.of(2050)));
+  }
+}
@@ -0,0 +1,85 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class MispricingRankingTest {
+
+  static RunResult result(int run, String name, long nanos) {
+    return new RunResult(
+        run,
+        0,
+        "cancun",
+        List.of(name),
+        "COMPLETED_SUCCESS",
+        1_000,
+        0,
+        Statistics.of(new double[] {nanos}),
+        Statistics.of(new double[] {1e9}),
+        false,
+        "",
+        null,
+        null);
+  }
+
+  @Test
+  void keepsOnlyTheWorstResults() {
+    MispricingRanking ranking = new MispricingRanking(result -> {}, 3);
+    List<Integer> order = new ArrayList<>();
+    for (int i = 1; i <= 20; i++) {
+      order.add(i);
+    }
+    Collections.shuffle(order, new Random(1));
+    for (int i : order) {
+      ranking.accept(result(1, "step_" + i, i * 1_000L));
+    }
+    // earlier runs are passed on but not ranked
+    ranking.accept(result(2, "step_earlier", 1_000_000));
+    assertEquals(
+        List.of("step_20", "step_19", "step_18"),
+        ranking.ranking().stream().map(RunResult::name).toList());
+  }
+
+  @Test
+  void medianIsWithinOneBucket() {
+    MispricingRanking ranking = new MispricingRanking(result -> {}, 1);
+    Random random = new Random(1);
+    double[] gasPerSecond = new double[1001];
+    for (int i = 0; i < gasPerSecond.length; i++) {
+      RunResult result = result(1, "step_" + i, 1_000 + random.nextInt(1_000_000));
+      ranking.accept(result);
+      gasPerSecond[i] = result.gasPerSecond();
+    }
+    Arrays.sort(gasPerSecond);
+    double median = gasPerSecond[gasPerSecond.length / 2];
+    double approximate = ranking.medianGasPerSecond("cancun");
+    assertTrue(Math.abs(approximate / median - 1) < 0.01, approximate + " vs " + median);
+  }
+}
@@ -0,0 +1,68 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class OpcodeTimingTracerTest {
+
+  static long[] samplesPerPosition(int sampleEvery, int loopLength, int operations) {
+    OpcodeTimingTracer tracer = new OpcodeTimingTracer(sampleEvery, new SplittableRandom(1));
+    long[] samples = new long[loopLength];
+    for (int i = 0; i < operations; i++) {
+      if (tracer.isSampled()) {
+        samples[i % loopLength]++;
+      }
+    }
+    return samples;
+  }
+
+  @Test
+  void everyPositionOfALoopIsSampled() {
+    // a 14 operation harness loop sampled every 4th operation used to miss half the positions
+    for (int sampleEvery : new int[] {2, 4, 7, 14, 28}) {
+      long[] samples = samplesPerPosition(sampleEvery, 14, 1_000_000);
+      for (int position = 0; position < samples.length; position++) {
+        assertTrue(
+            samples[position] > 0,
+            "position " + position + " sampled with one in " + sampleEvery);
+      }
+    }
+  }
+
+  @Test
+  void samplesOneInSampleEveryOnAverage() {
+    long samples = 0;
+    for (long count : samplesPerPosition(10, 1, 1_000_000)) {
+      samples += count;
+    }
+    assertEquals(100_000, samples, 2_000);
+  }
+
+  @Test
+  void sampleEveryOneTimesEverything() {
+    assertEquals(1_000, samplesPerPosition(1, 1, 1_000)[0]);
+  }
+}
@@ -0,0 +1,86 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PartitionTest {
+
+  @TempDir Path directory;
+
+  @Test
+  void shardsTakeTheirResidue() {
+    Partition shard = Partition.shard("1/3");
+    assertFalse(shard.claims(1, 0));
+    assertTrue(shard.claims(1, 1));
+    assertTrue(shard.claims(1, 4));
+    assertFalse(shard.claims(1, 5));
+  }
+
+  @Test
+  void rejectsBadShards() {
+    assertThrows(IllegalArgumentException.class, () -> Partition.shard("3/3"));
+    assertThrows(IllegalArgumentException.class, () -> Partition.shard("1"));
+    assertThrows(IllegalArgumentException.class, () -> Partition.shard("0/0"));
+  }
+
+  @Test
+  void eachChunkGoesToOneOwner() throws IOException {
+    LeasePartition first = new LeasePartition(directory, 10, "first");
+    LeasePartition second = new LeasePartition(directory, 10, "second");
+    assertTrue(first.claims(1, 0));
+    assertTrue(first.claims(1, 9));
+    assertFalse(second.claims(1, 5));
+    assertTrue(second.claims(1, 10));
+    assertFalse(first.claims(1, 15));
+    // the next run is a new set of chunks
+    assertTrue(second.claims(2, 0));
+    assertEquals("first", Files.readString(directory.resolve("run1-chunk0.lease")));
+  }
+
+  @Test
+  void ownersReclaimTheirLeases() throws IOException {
+    assertTrue(new LeasePartition(directory, 10, "host").claims(1, 0));
+    assertTrue(new LeasePartition(directory, 10, "host").claims(1, 0));
+    assertFalse(new LeasePartition(directory, 10, "other").claims(1, 0));
+  }
+
+  @Test
+  void leavesOnlyLeasesBehind() throws IOException {
+    LeasePartition partition = new LeasePartition(directory, 1, "host");
+    for (long index = 0; index < 5; index++) {
+      partition.claims(1, index);
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      assertTrue(files.allMatch(file -> file.toString().endsWith(".lease")));
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import org.hyperledger.besu.evm.frame.MessageFrame;
+import org.junit.jupiter.api.Test;
+
+class PrecompileStepsTest {
+
+  static final List<Step> STEPS = PrecompileSteps.steps();
+
+  static Step step(String name) {
+    return STEPS.stream().filter(s -> s.getName().equals(name)).findFirst().orElseThrow();
+  }
+
+  @Test
+  void everyStepUsesTheGasItDeclares() {
+    long loops = 2;
+    for (Step step : STEPS) {
+      LocalRunner runner =
+          new LocalRunner(
+              List.of(step), 1_000_000, 5120, RunSettings.DEFAULT.withForks(List.of(Fork.cancun)));
+      MessageFrame frame = runner.executeOnce(runner.layout(1, loops));
+      assertEquals(
+          MessageFrame.State.COMPLETED_SUCCESS, frame.getState(), step.getName() + " completes");
+      assertEquals(
+          CodeGenerator.HARNESS_OVERHEAD_ONE_TIME
+              + step.getGasOverhead()
+              + loops * (CodeGenerator.HARNESS_OVERHEAD_EACH_LOOP + step.getGasCost()),
+          runner.initialGas() - frame.getRemainingGas(),
+          step.getName() + " gas");
+    }
+  }
+
+  @Test
+  void modexpCountsExponentIterationsPerEip2565() {
+    // a 32 byte base and modulus are four words, squared is 16
+    assertEquals(16 * 255 / 3, PrecompileSteps.modexpGas(32, 32, 32));
+    assertEquals(16 * (8 * 96 + 255) / 3, PrecompileSteps.modexpGas(32, 128, 32));
+    assertEquals(16 * (8 * 480 + 255) / 3, PrecompileSteps.modexpGas(32, 512, 32));
+    // the minimum price
+    assertEquals(200, PrecompileSteps.modexpGas(1, 1, 1));
+    assertEquals(
+        PrecompileSteps.CALL_GAS + PrecompileSteps.modexpGas(32, 512, 32),
+        step("modexp_512").getGasCost());
+  }
+
+  @Test
+  void ecpairingChargesPerPair() {
+    for (int pairs : PrecompileSteps.PAIRINGS) {
+      assertEquals(
+          PrecompileSteps.CALL_GAS + 45_000 + 34_000 * pairs,
+          step("ecpairing_" + pairs).getGasCost());
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ResultReaderTest {
+
+  @TempDir Path directory;
+
+  @Test
+  void roundTripsJsonLines() throws IOException {
+    Path file = directory.resolve("results.jsonl");
+    OpcodeBreakdown opcodes =
+        new OpcodeBreakdown(
+            List.of(
+                new OpcodeBreakdown.Entry(0x01, "ADD", 300, 900, 450.5),
+                new OpcodeBreakdown.Entry(0x50, "POP", 300, 600, 120.25)),
+            1_400,
+            1_000,
+            16);
+    RunResult written =
+        new RunResult(
+            2,
+            7,
+            "london",
+            List.of("add_small", "pop"),
+            "COMPLETED_SUCCESS",
+            1_000_000,
+            2_000,
+            new Statistics(3, 900, 1_000, 1_010, 1_100, 1_200, 1_300, 50, 20),
+            Statistics.of(new double[] {1e9}),
+            true,
+            "",
+            opcodes,
+            new Allocation(4096, 2, 7));
+    try (JsonLinesResultSink sink = new JsonLinesResultSink(file, 1, false)) {
+      sink.accept(written);
+    }
+    List<RunResult> read = ResultReader.read(file);
+    assertEquals(1, read.size());
+    RunResult result = read.get(0);
+    assertEquals(2, result.run());
+    assertEquals(7, result.index());
+    assertEquals(written.steps(), result.steps());
+    assertEquals(written.time(), result.time());
+    assertEquals(written.gasPerSecond(), result.throughput().median(), 0);
+    assertTrue(result.noisy());
+    assertEquals(written.allocation(), result.allocation());
+    assertEquals(opcodes.entries(), result.opcodes().entries());
+    assertEquals(400, result.opcodes().tracerOverheadNanos());
+  }
+
+  @Test
+  void readsCsvWrittenBeforeAllocationColumns() throws IOException {
+    Path file = directory.resolve("old.csv");
+    Files.writeString(
+        file,
+        "run,index,fork,steps,halt,gas_used,nanos,gas_per_second,setup_nanos,min_nanos,"
+            + "mean_nanos,p90_nanos,p99_nanos,max_nanos,stddev_nanos,ci95_nanos,samples,noisy,"
+            + "revert\n"
+            + "1,3,berlin,add_small__pop,COMPLETED_SUCCESS,500,250,2000000000,10,240,250,260,"
+            + "270,280,5,2,9,false,\n");
+    List<RunResult> read = ResultReader.read(file);
+    assertEquals(1, read.size());
+    RunResult result = read.get(0);
+    assertEquals(List.of("add_small", "pop"), result.steps());
+    assertEquals(250, result.nanos());
+    assertEquals(9, result.time().count());
+    assertEquals("", result.revert());
+    assertNull(result.allocation());
+  }
+
+  @Test
+  void readsAnEmptyFile() throws IOException {
+    Path file = directory.resolve("empty.csv");
+    Files.writeString(file, "\n");
+    assertTrue(ResultReader.read(file).isEmpty());
+  }
+}
@@ -0,0 +1,91 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.apache.tuweni.units.bigints.UInt256;
+import org.hyperledger.besu.datatypes.Address;
+import org.hyperledger.besu.evm.fluent.SimpleAccount;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StateStoreTest {
+
+  @TempDir Path directory;
+
+  @Test
+  void findsEveryGeneratedEntry() throws IOException {
+    try (StateStore store = StateStore.open(directory, 7, 1_000, 3_000)) {
+      for (long i = 0; i < 1_000; i++) {
+        SimpleAccount account = store.account(StateStore.address(i));
+        assertNotNull(account, "account " + i);
+        assertTrue(account.getNonce() < 1 << 16);
+        assertTrue(account.getBalance().toLong() > 0);
+      }
+      for (long i = 0; i < 3_000; i++) {
+        assertNotEquals(UInt256.ZERO, store.slot(UInt256.valueOf(i)), "slot " + i);
+      }
+    }
+  }
+
+  @Test
+  void missesWhatWasNotGenerated() throws IOException {
+    try (StateStore store = StateStore.open(directory, 7, 10, 10)) {
+      assertNull(store.account(StateStore.address(10)));
+      assertNull(store.account(Address.fromHexString(Step.RETURN_CONTRACT_ADDRESS)));
+      assertEquals(UInt256.ZERO, store.slot(UInt256.valueOf(10)));
+    }
+  }
+
+  @Test
+  void reopensWithoutRegenerating() throws IOException {
+    UInt256 value;
+    long nonce;
+    try (StateStore store = StateStore.open(directory, 7, 100, 100)) {
+      value = store.slot(UInt256.valueOf(42));
+      nonce = store.account(StateStore.address(42)).getNonce();
+    }
+    Path file = directory.resolve("state-7-100-100.bin");
+    FileTime generated = Files.getLastModifiedTime(file);
+    try (StateStore store = StateStore.open(directory, 7, 100, 100)) {
+      assertEquals(value, store.slot(UInt256.valueOf(42)));
+      assertEquals(nonce, store.account(StateStore.address(42)).getNonce());
+    }
+    assertEquals(generated, Files.getLastModifiedTime(file));
+  }
+
+  @Test
+  void seedsGiveDifferentValues() throws IOException {
+    try (StateStore first = StateStore.open(directory, 1, 10, 10);
+        StateStore second = StateStore.open(directory, 2, 10, 10)) {
+      assertNotEquals(first.slot(UInt256.ONE), second.slot(UInt256.ONE));
+    }
+  }
+}
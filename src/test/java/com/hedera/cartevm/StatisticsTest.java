@@ -0,0 +1,81 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class StatisticsTest {
+
+  @Test
+  void summarizesUnsortedSamples() {
+    Statistics statistics = Statistics.of(new long[] {5, 1, 4, 2, 3});
+    assertEquals(5, statistics.count());
+    assertEquals(1, statistics.min(), 0);
+    assertEquals(3, statistics.median(), 0);
+    assertEquals(3, statistics.mean(), 0);
+    assertEquals(4.6, statistics.p90(), 1e-9);
+    assertEquals(4.96, statistics.p99(), 1e-9);
+    assertEquals(5, statistics.max(), 0);
+    assertEquals(Math.sqrt(2.5), statistics.stddev(), 1e-9);
+    // t(4) = 2.776
+    assertEquals(2.776 * Math.sqrt(2.5) / Math.sqrt(5), statistics.confidence95(), 1e-9);
+    assertEquals(Math.sqrt(2.5) / 3, statistics.variation(), 1e-9);
+  }
+
+  @Test
+  void aSingleSampleHasNoSpread() {
+    Statistics statistics = Statistics.of(new double[] {7});
+    assertEquals(7, statistics.median(), 0);
+    assertEquals(7, statistics.p99(), 0);
+    assertEquals(0, statistics.stddev(), 0);
+    assertEquals(0, statistics.confidence95(), 0);
+  }
+
+  @Test
+  void percentilesInterpolateBetweenRanks() {
+    double[] sorted = {10, 20};
+    assertEquals(10, Statistics.percentile(sorted, 0), 0);
+    assertEquals(15, Statistics.percentile(sorted, 0.5), 1e-9);
+    assertEquals(19, Statistics.percentile(sorted, 0.9), 1e-9);
+    assertEquals(20, Statistics.percentile(sorted, 1), 0);
+  }
+
+  @Test
+  void tCriticalValues() {
+    assertEquals(12.706, Statistics.tCritical(1), 0);
+    assertEquals(2.228, Statistics.tCritical(10), 0);
+    assertEquals(2.042, Statistics.tCritical(30), 0);
+    assertEquals(1.960, Statistics.tCritical(1000), 0);
+  }
+
+  @Test
+  void rejectsNoSamples() {
+    assertThrows(IllegalArgumentException.class, () -> Statistics.of(new double[0]));
+  }
+
+  @Test
+  void zeroMeanHasNoVariation() {
+    assertEquals(0, Statistics.of(new double[] {0, 0}).variation(), 0);
+  }
+}
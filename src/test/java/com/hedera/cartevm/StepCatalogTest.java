@@ -0,0 +1,157 @@
+package com.hedera.cartevm;
+
+/*-
+ * ‌
+ * CartEVM
+ * ​
+ * Copyright (C) 2021 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StepCatalogTest {
+
+  @TempDir Path directory;
+
+  static JsonObject json(String text) {
+    return JsonParser.parseString(text).getAsJsonObject();
+  }
+
+  static long gas(String expression, Map<String, Long> binding) {
+    JsonObject template = new JsonObject();
+    template.addProperty("gasCost", expression);
+    return StepCatalog.gas(template, "gasCost", binding);
+  }
+
+  @Test
+  void evaluatesGasExpressions() {
+    assertEquals(0, StepCatalog.gas(new JsonObject(), "gasCost", Map.of()));
+    assertEquals(1618, gas("18 + 50 * {bytes}", Map.of("bytes", 32L)));
+    assertEquals(5, gas("2 + 3 * (5 - 1) / 4", Map.of()));
+    assertEquals(-3, gas("1 - 2 - 2", Map.of()));
+    assertThrows(IllegalArgumentException.class, () -> gas("(1 + 2", Map.of()));
+    assertThrows(IllegalArgumentException.class, () -> gas("1 +", Map.of()));
+    assertThrows(IllegalArgumentException.class, () -> gas("1 % 2", Map.of()));
+  }
+
+  @Test
+  void rejectsGasThatIsNotAWholeNumber() {
+    assertThrows(IllegalArgumentException.class, () -> gas("3 / 2", Map.of()));
+    assertThrows(IllegalArgumentException.class, () -> gas("1 / (2 - 2)", Map.of()));
+    assertThrows(
+        IllegalArgumentException.class, () -> gas("{a} * {a}", Map.of("a", Long.MAX_VALUE / 2)));
+    assertThrows(IllegalArgumentException.class, () -> gas("99999999999999999999", Map.of()));
+  }
+
+  @Test
+  void substitutesPlaceholders() {
+    Map<String, Long> binding = Map.of("n", 3L, "offset", 0x120L);
+    assertEquals("exp_3", StepCatalog.substitute("exp_{n}", binding));
+    assertEquals("0120", StepCatalog.substitute("{offset:x}", binding));
+    assertEquals("ffffff", StepCatalog.substitute("{n*ff}", binding));
+    assertThrows(
+        IllegalArgumentException.class, () -> StepCatalog.substitute("{missing}", binding));
+  }
+
+  @Test
+  void assemblesCodeTokens() {
+    JsonObject template = json("{\"setup\": \"push:{n*ff} 0x01 ADD 50\"}");
+    assertEquals(
+        "62ffffff" + "01" + Step.OP_ADD + "50",
+        StepCatalog.code(template, "setup", Map.of("n", 3L)));
+    assertEquals("", StepCatalog.code(template, "cleanup", Map.of()));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> StepCatalog.code(json("{\"setup\": \"NOPE\"}"), "setup", Map.of()));
+  }
+
+  @Test
+  void expandsEveryCombinationOfParameters() {
+    List<Step> steps =
+        StepCatalog.expand(
+            json(
+                "{\"name\": \"s_{a}_{b}\", \"tags\": [\"t\"], \"execution\": \"POP\","
+                    + " \"gasCost\": \"{a} * {b}\","
+                    + " \"parameters\": {\"a\": [1, 2], \"b\": {\"from\": 10, \"to\": 30,"
+                    + " \"step\": 10}}}"));
+    assertEquals(6, steps.size());
+    assertEquals("s_1_10", steps.get(0).getName());
+    assertEquals("s_2_30", steps.get(5).getName());
+    assertEquals(60, steps.get(5).getGasCost());
+    assertEquals(Set.of("t"), steps.get(0).getTags());
+  }
+
+  @Test
+  void rejectsDuplicateNames() throws IOException {
+    Path catalog = directory.resolve("catalog.json");
+    Files.writeString(
+        catalog,
+        "{\"steps\": [{\"name\": \"same\", \"execution\": \"POP\","
+            + " \"parameters\": {\"n\": [1, 2]}}]}");
+    IOException e = assertThrows(IOException.class, () -> StepCatalog.load(catalog));
+    assertTrue(e.getMessage().contains("Duplicate step name same"));
+  }
+
+  @Test
+  void rejectsGasOutsideTheIntRange() throws IOException {
+    Path catalog = directory.resolve("catalog.json");
+    Files.writeString(
+        catalog,
+        "{\"steps\": [{\"name\": \"huge\", \"execution\": \"POP\","
+            + " \"gasCost\": \"3000000 * 1000\"}]}");
+    IOException e = assertThrows(IOException.class, () -> StepCatalog.load(catalog));
+    assertTrue(e.getMessage().contains("gasCost 3000000000 is out of range"), e.getMessage());
+  }
+
+  @Test
+  void mergeReplacesByName() {
+    List<Step> steps = new ArrayList<>();
+    steps.add(new Step("a", "", "", Step.OP_ADD, 3));
+    steps.add(new Step("b", "", "", Step.OP_ADD, 3));
+    StepCatalog.merge(
+        steps, List.of(new Step("b", "", "", Step.OP_MUL, 5), new Step("c", "", "", "", 0)));
+    assertEquals(3, steps.size());
+    assertEquals(Step.OP_MUL, steps.get(1).getExecutionCode());
+    assertEquals("c", steps.get(2).getName());
+  }
+
+  @Test
+  void tagsBuiltInStepsByOpcodeGroup() {
+    assertEquals(Set.of("builtin", "arithmetic"), Step.builtInTags(Step.OP_ADD));
+    assertEquals(Set.of("builtin", "storage"), Step.builtInTags(Step.OP_SLOAD));
+    assertEquals(Set.of("builtin", "memory"), Step.builtInTags(Step.OP_MSTORE8));
+    assertEquals(Set.of("builtin", "flow"), Step.builtInTags(Step.OP_JUMPDEST));
+    assertEquals(Set.of("builtin", "stack"), Step.builtInTags("9191"));
+    assertEquals(Set.of("builtin", "log"), Step.builtInTags(Step.OP_LOG4));
+    assertEquals(Set.of("builtin", "system"), Step.builtInTags(Step.OP_CALL));
+    assertEquals(Set.of("builtin"), Step.builtInTags(""));
+    assertTrue(Step.steps.stream().allMatch(step -> step.getTags().contains("builtin")));
+  }
+}